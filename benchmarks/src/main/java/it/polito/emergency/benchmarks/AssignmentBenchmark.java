@@ -0,0 +1,89 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import it.polito.emergency.EmergencyException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The update paths: assigning patients to professionals and moving them between departments.
+ * Every invocation works on a different patient, so that the updates spread over the
+ * register as they do during a shift; the multi-threaded variants measure contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class AssignmentBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int patients;
+
+    @Param({ "1000", "10000", "100000" })
+    public int professionals;
+
+    private EmergencyApp app;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // enough beds for everybody, so that patients move instead of being discharged
+        app = Dataset.populate(professionals, patients, patients);
+    }
+
+    /** The patients visited by a thread, in turn; each thread starts at a different one. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+        private int round;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() * 7919);
+        }
+
+        int next(int bound) {
+            if (++next >= bound) {
+                next = 0;
+                round++;
+            }
+            return next;
+        }
+    }
+
+    private String assign(Cursor cursor) throws EmergencyException {
+        int i = cursor.next(patients);
+        return app.assignPatientToProfessional(Dataset.fiscalCode(i), Dataset.SPECIALIZATIONS[i % Dataset.SPECIALIZATIONS.length]);
+    }
+
+    private void move(Cursor cursor) throws EmergencyException {
+        int i = cursor.next(patients);
+        // the department changes at every round, so that each call releases a bed and takes another
+        app.dischargeOrHospitalize(Dataset.fiscalCode(i), Dataset.DEPARTMENTS[cursor.round & 1]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String assignPatientToProfessional(Cursor cursor) throws EmergencyException {
+        return assign(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String assignPatientToProfessionalContended(Cursor cursor) throws EmergencyException {
+        return assign(cursor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void dischargeOrHospitalize(Cursor cursor) throws EmergencyException {
+        move(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void dischargeOrHospitalizeContended(Cursor cursor) throws EmergencyException {
+        move(cursor);
+    }
+}
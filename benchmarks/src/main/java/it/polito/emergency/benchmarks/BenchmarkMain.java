@@ -0,0 +1,42 @@
+package it.polito.emergency.benchmarks;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Properties;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * Runs the benchmarks with the allocation profiler, writing the results as JSON to
+ * results/emergency-VERSION.json, so that the results of every release can be compared.
+ * Accepts the usual JMH command line, e.g. a benchmark name pattern or "-p patients=10000000";
+ * a -rff option chooses another result file.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, IOException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) {
+            Path results = Paths.get("results");
+            Files.createDirectories(results);
+            options.result(results.resolve("emergency-" + version() + ".json").toString());
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String version() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = BenchmarkMain.class.getResourceAsStream("/benchmarks.properties")) {
+            if (in != null)
+                properties.load(in);
+        }
+        return properties.getProperty("emergency.version", "dev");
+    }
+}
@@ -0,0 +1,94 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Synthetic, reproducible data for the benchmarks: the same sizes always give the same data.
+ * Professionals are spread over a few specializations with shifts of one to three months
+ * within a year; patients are accepted on every day of that year, with surnames drawn
+ * from a pool much smaller than the number of patients, as in a real register.
+ */
+final class Dataset {
+
+    static final String[] SPECIALIZATIONS = {
+        "Cardiology", "Orthopedics", "Neurology", "Pediatrics", "Dermatology", "Oncology", "Radiology", "Surgery"
+    };
+    static final String[] DEPARTMENTS = { "Cardiology", "Orthopedics", "Neurology", "Pediatrics" };
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    static final int DAYS = 366;
+    private static final String[] SYLLABLES = {
+        "ro", "ma", "bi", "an", "chi", "ve", "ri", "de", "co", "lo", "ne", "gri", "fer", "ra", "es", "po", "si", "to"
+    };
+
+    private Dataset() {
+    }
+
+    static String fiscalCode(int i) {
+        return "FC" + i;
+    }
+
+    static String surname(int i) {
+        // about 5800 distinct surnames
+        int n = i % (SYLLABLES.length * SYLLABLES.length * SYLLABLES.length);
+        String s = SYLLABLES[n % SYLLABLES.length] + SYLLABLES[n / SYLLABLES.length % SYLLABLES.length]
+                   + SYLLABLES[n / SYLLABLES.length / SYLLABLES.length];
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    static LocalDate day(int i) {
+        return FIRST_DAY.plusDays(i % DAYS);
+    }
+
+    /**
+     * @return The CSV line of a professional, in the format read by the loaders.
+     */
+    static String professionalLine(int i, Random random) {
+        LocalDate start = FIRST_DAY.plusDays(random.nextInt(DAYS - 90));
+        LocalDate end = start.plusDays(30 + random.nextInt(60));
+        return "P" + i + "," + "Name" + i + "," + surname(i * 7) + "," + SPECIALIZATIONS[i % SPECIALIZATIONS.length]
+               + "," + start + " to " + end + ",08:00-20:00";
+    }
+
+    /**
+     * Registers professionals covering every day, departments and patients.
+     */
+    static EmergencyApp populate(int professionals, int patients, int bedsPerDepartment) {
+        EmergencyApp app = new EmergencyApp();
+        Random random = new Random(42);
+        for (int i = 0; i < professionals; i++) {
+            String[] f = professionalLine(i, random).split(",");
+            app.addProfessional(f[0], f[1], f[2], f[3], f[4]);
+        }
+        // someone on duty for the whole year in every specialization, so that every assignment succeeds
+        for (int s = 0; s < SPECIALIZATIONS.length; s++)
+            app.addProfessional("Y" + s, "Always", "OnDuty", SPECIALIZATIONS[s], FIRST_DAY + " to " + FIRST_DAY.plusDays(DAYS - 1));
+        for (String d : DEPARTMENTS)
+            app.addDepartment(d, bedsPerDepartment);
+        for (int i = 0; i < patients; i++)
+            app.addPatient(fiscalCode(i), "Name" + i, surname(i), "1970-01-01", "Checkup", day(i).toString(),
+                           1 + random.nextInt(5));
+        return app;
+    }
+
+    /**
+     * Writes a professionals CSV file with a header.
+     */
+    static Path writeProfessionals(int professionals) throws IOException {
+        Path file = Files.createTempFile("professionals", ".csv");
+        file.toFile().deleteOnExit();
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("matricola,nome,cognome,specializzazione,period,orari_lavoro\n");
+            for (int i = 0; i < professionals; i++) {
+                out.write(professionalLine(i, random));
+                out.write('\n');
+            }
+        }
+        return file;
+    }
+}
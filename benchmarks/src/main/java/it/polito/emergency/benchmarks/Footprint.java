@@ -0,0 +1,55 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Measures the heap retained per patient and per professional, as the growth of the used heap
+ * after a full collection divided by the number of records.
+ * Every field is a new string, as if parsed from a request or a file, so that the strings
+ * shared by many records count as many times as an application would store them.
+ * <p>
+ * Run with a fixed heap, e.g. {@code java -Xms8g -Xmx8g -cp target/benchmarks.jar
+ * it.polito.emergency.benchmarks.Footprint 1000000}.
+ */
+public class Footprint {
+
+    private static final String[] REASONS = { "Chest pain", "Fracture", "Fever", "Checkup", "Burn", "Allergy", "Trauma" };
+
+    public static void main(String[] args) {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int professionals = patients / 10;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        EmergencyApp app = new EmergencyApp();
+        used(memory); // the usage read right after the first collections is not accurate
+        long empty = used(memory);
+        for (int i = 0; i < professionals; i++) {
+            String specialization = Dataset.SPECIALIZATIONS[i % Dataset.SPECIALIZATIONS.length];
+            String start = Dataset.day(i).toString();
+            app.addProfessional("P" + i, fresh("Name" + i % 2000), fresh(Dataset.surname(i)), fresh(specialization),
+                                start + " to " + Dataset.day(i + 60));
+        }
+        long staffed = used(memory);
+        for (int i = 0; i < patients; i++)
+            app.addPatient(Dataset.fiscalCode(i), fresh("Name" + i % 2000), fresh(Dataset.surname(i)),
+                           Dataset.FIRST_DAY.minusDays(10_000 + i % 20_000).toString(), fresh(REASONS[i % REASONS.length]),
+                           Dataset.day(i).toString(), 1 + i % 5);
+        long full = used(memory);
+
+        System.out.printf("%d professionals: %.1f bytes each%n", professionals, (double) (staffed - empty) / professionals);
+        System.out.printf("%d patients: %.1f bytes each%n", patients, (double) (full - staffed) / patients);
+        System.out.println(app.getNumberOfPatients()); // keeps the emergency room reachable
+    }
+
+    private static String fresh(String s) {
+        return new String(s.toCharArray());
+    }
+
+    private static long used(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
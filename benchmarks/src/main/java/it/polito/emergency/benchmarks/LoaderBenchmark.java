@@ -0,0 +1,66 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Loading the professionals CSV, line by line and in parallel, into an empty emergency room.
+ * The parallel reader parses on a pool of each size in {@link Pool#parallelism}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int professionals;
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+
+        @Param({ "1", "2", "4", "8" })
+        public int parallelism;
+
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Dataset.writeProfessionals(professionals);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int readFromFileProfessionals() throws IOException {
+        return new EmergencyApp().readFromFileProfessionals(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public int readFromFileProfessionalsParallel(Pool pool) throws IOException {
+        return new EmergencyApp().readFromFileProfessionalsParallel(file, pool.pool);
+    }
+}
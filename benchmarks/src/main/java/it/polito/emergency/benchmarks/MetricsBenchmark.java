@@ -0,0 +1,43 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import it.polito.emergency.MetricsRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The cost of measuring an operation: the cheapest operation, a counter read,
+ * with the default registry and with measurements turned off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({ "default", "none" })
+    public String registry;
+
+    private EmergencyApp app;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = Dataset.populate(10, 1000, 10);
+        if (registry.equals("none"))
+            app.setMetricsRegistry(MetricsRegistry.NONE);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int getNumberOfPatients() {
+        return app.getNumberOfPatients();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int getNumberOfPatientsContended() {
+        return app.getNumberOfPatients();
+    }
+}
@@ -0,0 +1,79 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import it.polito.emergency.EmergencyException;
+import it.polito.emergency.Patient;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The read paths: patients by day of acceptance, by fiscal code and by surname.
+ * A day holds about patients / 366 patients and a surname about patients / 5800.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int patients;
+
+    @Param({ "1000" })
+    public int professionals;
+
+    private EmergencyApp app;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = Dataset.populate(professionals, patients, 100);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() * 7919);
+        }
+
+        int next(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> getPatientsByDate(Cursor cursor) {
+        return app.getPatientsByDate(Dataset.day(cursor.next(Dataset.DAYS)).toString());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<String> getPatientsByDateContended(Cursor cursor) {
+        return app.getPatientsByDate(Dataset.day(cursor.next(Dataset.DAYS)).toString());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Patient> getPatientByFiscalCode(Cursor cursor) throws EmergencyException {
+        return app.getPatient(Dataset.fiscalCode(cursor.next(patients)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Patient> getPatientBySurname(Cursor cursor) throws EmergencyException {
+        return app.getPatient(Dataset.surname(cursor.next(patients)));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<Patient> getPatientBySurnameContended(Cursor cursor) throws EmergencyException {
+        return app.getPatient(Dataset.surname(cursor.next(patients)));
+    }
+}
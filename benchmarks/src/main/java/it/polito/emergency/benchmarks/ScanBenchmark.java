@@ -0,0 +1,50 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import it.polito.emergency.EmergencyException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Aggregate counts over all the patients, scanning the patients on the heap and the column store.
+ * A fifth of the patients is assigned, and half of them leave, most discharged since beds are few.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+    @Param({ "1000000" })
+    public int patients;
+
+    @Param({ "false", "true" })
+    public boolean columnar;
+
+    private EmergencyApp app;
+
+    @Setup(Level.Trial)
+    public void setUp() throws EmergencyException {
+        app = Dataset.populate(1000, patients, 100);
+        for (int i = 0; i < patients; i += 5) {
+            app.assignPatientToProfessional(Dataset.fiscalCode(i), Dataset.SPECIALIZATIONS[i % Dataset.SPECIALIZATIONS.length]);
+            if (i % 10 == 0)
+                app.dischargeOrHospitalize(Dataset.fiscalCode(i), Dataset.DEPARTMENTS[i % Dataset.DEPARTMENTS.length]);
+        }
+        if (columnar)
+            app.enableColumnarStore();
+    }
+
+    @Benchmark
+    public int admittedInJune() {
+        return app.countPatients(PatientStatus.ADMITTED, "2024-06-01", "2024-06-30", null, null);
+    }
+
+    @Benchmark
+    public int dischargedBySpecialization() {
+        return app.countPatients(PatientStatus.DISCHARGED, null, null, "Cardiology", null);
+    }
+}
@@ -0,0 +1,100 @@
+package it.polito.emergency.benchmarks;
+
+import it.polito.emergency.EmergencyApp;
+import it.polito.emergency.EmergencyException;
+import it.polito.emergency.Patient;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A surge of arrivals on the same day, registered and assigned one by one and as a batch,
+ * in memory and with every change logged to disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class SurgeBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int surge;
+
+    @Param({ "false", "true" })
+    public boolean logged;
+
+    private List<Patient> arrivals;
+    private Map<String, String> assignments;
+    private EmergencyApp app;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        assignments = new LinkedHashMap<>();
+        for (int i = 0; i < surge; i++)
+            assignments.put(Dataset.fiscalCode(i), Dataset.SPECIALIZATIONS[i % Dataset.SPECIALIZATIONS.length]);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        // new patients every time, since an emergency room keeps and changes the registered ones
+        String day = Dataset.FIRST_DAY.plusDays(100).toString();
+        arrivals = new ArrayList<>(surge);
+        Random random = new Random(42);
+        for (int i = 0; i < surge; i++)
+            arrivals.add(new Patient(Dataset.fiscalCode(i), "Name" + i, Dataset.surname(random.nextInt(surge)), "1970-01-01",
+                                     "Trauma", day, 1 + random.nextInt(5)));
+        if (logged) {
+            directory = Files.createTempDirectory("surge");
+            app = new EmergencyApp(directory, EmergencyApp.Durability.GROUP_COMMIT);
+        } else {
+            app = new EmergencyApp();
+        }
+        for (int s = 0; s < Dataset.SPECIALIZATIONS.length; s++)
+            for (int p = 0; p < 10; p++)
+                app.addProfessional("P" + s + "-" + p, "Name", "Surname", Dataset.SPECIALIZATIONS[s],
+                                    Dataset.FIRST_DAY + " to " + Dataset.FIRST_DAY.plusDays(Dataset.DAYS - 1));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        app.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(f -> {
+                    try {
+                        Files.delete(f);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            Files.delete(directory);
+            directory = null;
+        }
+    }
+
+    @Benchmark
+    public int oneByOne() throws EmergencyException {
+        for (Patient p : arrivals)
+            app.addPatient(p.getFiscalCode(), p.getName(), p.getSurname(), p.getDateOfBirth(), p.getReason(),
+                           p.getDateTimeAccepted(), p.getSeverity());
+        int assigned = 0;
+        for (Map.Entry<String, String> a : assignments.entrySet())
+            if (app.assignPatientToProfessional(a.getKey(), a.getValue()) != null)
+                assigned++;
+        return assigned;
+    }
+
+    @Benchmark
+    public int batch() {
+        app.addPatients(arrivals);
+        return app.assignPatients(assignments).getSucceeded().size();
+    }
+}
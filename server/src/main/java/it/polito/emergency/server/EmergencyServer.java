@@ -0,0 +1,376 @@
+package it.polito.emergency.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.polito.emergency.BatchResult;
+import it.polito.emergency.EmergencyApp;
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import it.polito.emergency.EmergencyException;
+import it.polito.emergency.Patient;
+import it.polito.emergency.Report;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An HTTP/JSON service in front of an {@link EmergencyApp}, on the JDK {@link HttpServer}.
+ * <p>
+ * Connections are multiplexed by the server on a single selector thread, so an idle or
+ * keep-alive connection costs no thread; requests sent back to back on a connection are
+ * served in order. Each request runs on its own virtual thread when the JVM has them
+ * (Java 21 and later), so requests waiting on the emergency room hold no platform thread;
+ * on older JVMs they run on a fixed pool of platform threads.
+ * <p>
+ * Request and response bodies are JSON objects. Errors answer 400 for malformed requests,
+ * 404 for unknown paths, 405 for a wrong method, 413 for a body longer than {@link #MAX_BODY},
+ * 422 when the emergency room refuses the operation and 500 for a failure of the service,
+ * with an object holding the "error" message.
+ * <p>
+ * The server writes the headers and the body of a response apart: without TCP_NODELAY the
+ * body waits for the delayed ACK of the client, about 40 ms per request. {@link #main} turns
+ * it on; a process embedding the service should be launched with
+ * {@code -Dsun.net.httpserver.nodelay=true}, or call {@link #useNoDelay()} before creating it.
+ */
+public class EmergencyServer implements AutoCloseable {
+
+    /** Connections waiting to be accepted before new ones are refused. */
+    static final int BACKLOG = 16384;
+
+    /** The longest request body accepted, in bytes. */
+    static final int MAX_BODY = 4 << 20;
+
+    /** A JSON endpoint: from the body and the query parameters to the response. */
+    @FunctionalInterface
+    private interface Endpoint {
+        Object handle(Object body, Map<String, String> query) throws EmergencyException;
+    }
+
+    private final EmergencyApp app;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the service; it accepts requests once started.
+     *
+     * @param app The emergency room to serve; closing the service does not close it.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public EmergencyServer(EmergencyApp app, InetSocketAddress address) throws IOException {
+        this.app = app;
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        route("POST", "/professionals", this::addProfessional);
+        route("POST", "/departments", this::addDepartment);
+        route("POST", "/patients", this::addPatient);
+        route("POST", "/patients/batch", this::addPatients);
+        route("POST", "/assignments", this::assign);
+        route("POST", "/assignments/batch", this::assignBatch);
+        route("POST", "/reports", this::saveReport);
+        route("POST", "/discharges", this::discharge);
+        route("GET", "/counts", this::count);
+        route("GET", "/counts/recent", this::recent);
+        // answered here rather than by the server, which would close the connection
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                body(exchange);
+                send(exchange, 404, Map.of("error", "Not found"));
+            }
+        });
+    }
+
+    /**
+     * Turns TCP_NODELAY on for the services created afterwards in this JVM, unless the
+     * launch command line decided otherwise.
+     */
+    public static void useNoDelay() {
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * @return One virtual thread per task on Java 21 and later, a pool of platform threads otherwise.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            // looked up by reflection, since the module is built for Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "http-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return The port the service listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void route(String method, String path, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            try (exchange) {
+                byte[] request = body(exchange);
+                if (request == null) {
+                    send(exchange, 413, Map.of("error", "Request body longer than " + MAX_BODY + " bytes"));
+                } else if (!exchange.getRequestURI().getPath().equals(path)) {
+                    send(exchange, 404, Map.of("error", "Not found"));
+                } else if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, Map.of("error", "Method not allowed"));
+                } else {
+                    respond(exchange, endpoint, request);
+                }
+            }
+        });
+    }
+
+    private void respond(HttpExchange exchange, Endpoint endpoint, byte[] request) throws IOException {
+        Object response;
+        int status = 200;
+        try {
+            Object body = request.length == 0 ? null : Json.parse(new String(request, StandardCharsets.UTF_8));
+            response = endpoint.handle(body, query(exchange));
+        } catch (EmergencyException e) {
+            status = 422;
+            response = error(e);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            status = 400;
+            response = error(e);
+        } catch (RuntimeException e) {
+            status = 500;
+            response = error(e);
+        }
+        send(exchange, status, response);
+    }
+
+    /**
+     * @return The request body, or null if it is longer than {@link #MAX_BODY}; the rest is left unread.
+     */
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        byte[] request = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+        return request.length > MAX_BODY ? null : request;
+    }
+
+    private static Map<String, Object> error(Exception e) {
+        return Map.of("error", e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+    }
+
+    private static void send(HttpExchange exchange, int status, Object response) throws IOException {
+        byte[] bytes = Json.write(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        Map<String, String> query = new HashMap<>();
+        if (raw == null)
+            return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                          URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object body) {
+        if (!(body instanceof Map))
+            throw new IllegalArgumentException("Expected a JSON object");
+        return (Map<String, Object>) body;
+    }
+
+    private static String text(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing " + name);
+        return value.toString();
+    }
+
+    private static int number(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing " + name);
+        if (!(value instanceof Number n))
+            throw new IllegalArgumentException("Not a number: " + name);
+        // integers are parsed as Long, anything else as Double
+        double d = n.doubleValue();
+        if (d != Math.rint(d) || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Not an integer: " + name);
+        return n instanceof Long l ? (int) (long) l : (int) d;
+    }
+
+    private static Map<String, Object> json(Patient p) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("fiscalCode", p.getFiscalCode());
+        json.put("name", p.getName());
+        json.put("surname", p.getSurname());
+        json.put("dateOfBirth", p.getDateOfBirth());
+        json.put("reason", p.getReason());
+        json.put("dateTimeAccepted", p.getDateTimeAccepted());
+        json.put("status", p.getStatus().name());
+        json.put("severity", p.getSeverity());
+        return json;
+    }
+
+    private static Map<String, Object> json(Report r) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", r.getId());
+        json.put("professionalId", r.getProfessionalId());
+        json.put("fiscalCode", r.getFiscalCode());
+        json.put("date", r.getDate());
+        json.put("description", r.getDescription());
+        return json;
+    }
+
+    private static Map<String, Object> json(BatchResult<?> result) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        Map<String, Object> succeeded = new LinkedHashMap<>();
+        result.getSucceeded().forEach((fiscalCode, value) ->
+            succeeded.put(fiscalCode, value instanceof Patient p ? json(p) : value));
+        json.put("succeeded", succeeded);
+        json.put("failed", result.getFailed());
+        return json;
+    }
+
+    private static int severity(Map<String, Object> fields) {
+        return fields.get("severity") == null ? Patient.DEFAULT_SEVERITY : number(fields, "severity");
+    }
+
+    private static Patient patient(Map<String, Object> fields) {
+        return new Patient(text(fields, "fiscalCode"), text(fields, "name"), text(fields, "surname"),
+                           text(fields, "dateOfBirth"), text(fields, "reason"), text(fields, "dateTimeAccepted"),
+                           severity(fields));
+    }
+
+    private Object addProfessional(Object body, Map<String, String> query) {
+        Map<String, Object> f = object(body);
+        app.addProfessional(text(f, "id"), text(f, "name"), text(f, "surname"), text(f, "specialization"), text(f, "period"));
+        return Map.of("id", text(f, "id"));
+    }
+
+    private Object addDepartment(Object body, Map<String, String> query) {
+        Map<String, Object> f = object(body);
+        app.addDepartment(text(f, "name"), number(f, "maxPatients"));
+        return Map.of("name", text(f, "name"));
+    }
+
+    private Object addPatient(Object body, Map<String, String> query) {
+        Map<String, Object> f = object(body);
+        return json(app.addPatient(text(f, "fiscalCode"), text(f, "name"), text(f, "surname"), text(f, "dateOfBirth"),
+                                   text(f, "reason"), text(f, "dateTimeAccepted"), severity(f)));
+    }
+
+    private Object addPatients(Object body, Map<String, String> query) {
+        if (!(body instanceof List<?> items))
+            throw new IllegalArgumentException("Expected a JSON array");
+        List<Patient> batch = new ArrayList<>(items.size());
+        for (Object item : items)
+            batch.add(patient(object(item)));
+        return json(app.addPatients(batch));
+    }
+
+    private Object assign(Object body, Map<String, String> query) throws EmergencyException {
+        Map<String, Object> f = object(body);
+        return Map.of("professionalId", app.assignPatientToProfessional(text(f, "fiscalCode"), text(f, "specialization")));
+    }
+
+    private Object assignBatch(Object body, Map<String, String> query) {
+        Map<String, String> assignments = new LinkedHashMap<>();
+        object(body).forEach((fiscalCode, specialization) -> assignments.put(fiscalCode, String.valueOf(specialization)));
+        return json(app.assignPatients(assignments));
+    }
+
+    private Object saveReport(Object body, Map<String, String> query) throws EmergencyException {
+        Map<String, Object> f = object(body);
+        return json(app.saveReport(text(f, "professionalId"), text(f, "fiscalCode"), text(f, "date"), text(f, "description")));
+    }
+
+    private Object discharge(Object body, Map<String, String> query) throws EmergencyException {
+        Map<String, Object> f = object(body);
+        String fiscalCode = text(f, "fiscalCode");
+        app.dischargeOrHospitalize(fiscalCode, text(f, "department"));
+        return Map.of("fiscalCode", fiscalCode, "hospitalized", app.verifyPatient(fiscalCode) == 0);
+    }
+
+    private Object count(Object body, Map<String, String> query) {
+        String status = query.get("status");
+        int count = app.countPatients(status == null ? null : PatientStatus.valueOf(status), query.get("from"), query.get("to"),
+                                      query.get("specialization"), query.get("department"));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("count", count);
+        json.put("admitted", app.getNumberOfPatients());
+        json.put("discharged", app.getNumberOfPatientsDischarged());
+        return json;
+    }
+
+    private Object recent(Object body, Map<String, String> query) {
+        Duration window = Duration.parse(query.getOrDefault("window", "PT15M"));
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("window", window.toString());
+        json.put("admissions", app.getAdmissions(window));
+        json.put("byReason", app.getAdmissionsByReason(window));
+        json.put("bySpecialization", app.getAssignmentsBySpecialization(window));
+        json.put("hospitalized", app.getStatusChanges(PatientStatus.HOSPITALIZED, window));
+        json.put("discharged", app.getStatusChanges(PatientStatus.DISCHARGED, window));
+        return json;
+    }
+
+    /**
+     * Serves an emergency room until the process is stopped.
+     * Arguments: the port (default 8080) and, optionally, a directory where the changes are
+     * logged with group commit; without it the emergency room is kept in memory.
+     */
+    public static void main(String[] args) throws IOException {
+        useNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        EmergencyApp app = args.length > 1
+                ? new EmergencyApp(Paths.get(args[1]), EmergencyApp.Durability.GROUP_COMMIT)
+                : new EmergencyApp();
+        EmergencyServer service = new EmergencyServer(app, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.close();
+            try {
+                app.close();
+            } catch (IOException e) {
+                System.err.println("Closing the emergency room: " + e.getMessage());
+            }
+        }));
+        service.start();
+        System.out.println("Serving on port " + service.getPort());
+    }
+}
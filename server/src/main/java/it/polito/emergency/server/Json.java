@@ -0,0 +1,231 @@
+package it.polito.emergency.server;
+
+import java.util.*;
+
+/**
+ * A minimal JSON reader and writer, enough for the requests and responses of the service.
+ * Objects are read as {@link LinkedHashMap}, arrays as {@link ArrayList}, numbers as
+ * {@link Long} or {@link Double}; writing accepts maps, collections, strings, numbers,
+ * booleans and null.
+ */
+final class Json {
+
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param text A JSON document.
+     * @return The value of the document.
+     * @throws IllegalArgumentException If the document is not well-formed.
+     */
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpace();
+        if (json.pos != text.length())
+            throw json.error("Unexpected content");
+        return value;
+    }
+
+    private Object value() {
+        skipSpace();
+        if (pos == text.length())
+            throw error("Unexpected end");
+        return switch (text.charAt(pos)) {
+            case '{' -> object();
+            case '[' -> array();
+            case '"' -> string();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> number();
+        };
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"')
+                throw error("Expected a name");
+            String name = string();
+            skipSpace();
+            expect(':');
+            object.put(name, value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String string() {
+        pos++;
+        StringBuilder out = new StringBuilder();
+        while (true) {
+            if (pos >= text.length())
+                throw error("Unterminated string");
+            char c = text.charAt(pos++);
+            if (c == '"')
+                return out.toString();
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (pos >= text.length())
+                throw error("Unterminated string");
+            char e = text.charAt(pos++);
+            switch (e) {
+                case '"', '\\', '/' -> out.append(e);
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                case 't' -> out.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length())
+                        throw error("Bad escape");
+                    out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> throw error("Bad escape");
+            }
+        }
+    }
+
+    private Object number() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)
+            pos++;
+        String n = text.substring(start, pos);
+        try {
+            if (n.indexOf('.') < 0 && n.indexOf('e') < 0 && n.indexOf('E') < 0)
+                return Long.parseLong(n);
+            return Double.parseDouble(n);
+        } catch (NumberFormatException e) {
+            throw error("Bad value");
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos))
+            throw error("Bad value");
+        pos += word.length();
+        return value;
+    }
+
+    private char peek() {
+        if (pos >= text.length())
+            throw error("Unexpected end");
+        return text.charAt(pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c)
+            throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + pos);
+    }
+
+    /**
+     * @param value A map, collection, string, number, boolean or null.
+     * @return The JSON text of the value.
+     */
+    static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value);
+        return out.toString();
+    }
+
+    private static void write(StringBuilder out, Object value) {
+        if (value == null || value instanceof Boolean || value instanceof Number) {
+            out.append(value);
+        } else if (value instanceof Map<?, ?> map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                if (!first)
+                    out.append(',');
+                first = false;
+                quote(out, String.valueOf(e.getKey()));
+                out.append(':');
+                write(out, e.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object item : collection) {
+                if (!first)
+                    out.append(',');
+                first = false;
+                write(out, item);
+            }
+            out.append(']');
+        } else {
+            quote(out, value.toString());
+        }
+    }
+
+    private static void quote(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        out.append(String.format("\\u%04x", (int) c));
+                    else
+                        out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+}
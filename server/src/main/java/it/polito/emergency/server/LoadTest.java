@@ -0,0 +1,162 @@
+package it.polito.emergency.server;
+
+import it.polito.emergency.EmergencyApp;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Drives an emergency service with many concurrent clients and reports throughput and latency.
+ * Every simulated patient goes through intake, assignment, a report and discharge or
+ * hospitalization, one request after the other; one patient in a hundred also asks for the
+ * counts. As many patients as connections are in flight at any time.
+ * <p>
+ * Options: {@code --url http://host:port} of a running service (by default a service is
+ * started in this process on a free port), {@code --connections N} (default 1000) and
+ * {@code --patients N} (default 20000).
+ */
+public class LoadTest {
+
+    private static final String[] SPECIALIZATIONS = { "Cardiology", "Orthopedics", "Neurology", "Pediatrics" };
+    private static final String[] REASONS = { "Chest pain", "Fracture", "Headache", "Fever" };
+
+    private final HttpClient client;
+    private final URI base;
+    private final long[] latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final Map<Integer, AtomicInteger> statuses = new ConcurrentSkipListMap<>();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private LoadTest(URI base, int connections, int requests) {
+        this.base = base;
+        this.latencies = new long[requests];
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread t = new Thread(r, "load-client");
+                    t.setDaemon(true);
+                    return t;
+                }))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2)
+            options.put(args[i], args[i + 1]);
+        int connections = Integer.parseInt(options.getOrDefault("--connections", "1000"));
+        int patients = Integer.parseInt(options.getOrDefault("--patients", "20000"));
+
+        EmergencyServer embedded = null;
+        URI base;
+        if (options.containsKey("--url")) {
+            base = URI.create(options.get("--url"));
+        } else {
+            EmergencyServer.useNoDelay();
+            embedded = new EmergencyServer(new EmergencyApp(), new InetSocketAddress("localhost", 0));
+            embedded.start();
+            base = URI.create("http://localhost:" + embedded.getPort());
+        }
+        try {
+            // four requests per patient, plus the counts of one patient in a hundred
+            LoadTest test = new LoadTest(base, connections, patients * 4 + patients / 100 + 1);
+            test.setUp();
+            test.run(connections, patients);
+        } finally {
+            if (embedded != null)
+                embedded.close();
+        }
+    }
+
+    private void setUp() throws Exception {
+        for (int s = 0; s < SPECIALIZATIONS.length; s++)
+            for (int p = 0; p < 50; p++)
+                send("POST", "/professionals", Json.write(Map.of("id", "P" + s + "-" + p, "name", "Name", "surname", "Surname",
+                        "specialization", SPECIALIZATIONS[s], "period", "2024-01-01 to 2024-12-31"))).join();
+        for (String department : SPECIALIZATIONS)
+            send("POST", "/departments", Json.write(Map.of("name", department, "maxPatients", 1000))).join();
+    }
+
+    private void run(int connections, int patients) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(connections);
+        CountDownLatch done = new CountDownLatch(patients);
+        String run = Long.toString(System.nanoTime(), 36); // fresh fiscal codes on every run
+        long start = System.nanoTime();
+        for (int i = 0; i < patients; i++) {
+            inFlight.acquire();
+            patient(run + "-" + i, i).whenComplete((ok, e) -> {
+                if (e != null)
+                    failures.incrementAndGet();
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(connections, patients, seconds);
+    }
+
+    private CompletableFuture<Void> patient(String fiscalCode, int i) {
+        String specialization = SPECIALIZATIONS[i % SPECIALIZATIONS.length];
+        Map<String, Object> patient = new LinkedHashMap<>();
+        patient.put("fiscalCode", fiscalCode);
+        patient.put("name", "Name");
+        patient.put("surname", "Surname" + i % 1000);
+        patient.put("dateOfBirth", "1980-01-01");
+        patient.put("reason", REASONS[i % REASONS.length]);
+        patient.put("dateTimeAccepted", "2024-06-10");
+        patient.put("severity", 1 + i % 5);
+        CompletableFuture<String> flow = send("POST", "/patients", Json.write(patient))
+                .thenCompose(r -> send("POST", "/assignments", Json.write(Map.of("fiscalCode", fiscalCode, "specialization", specialization))))
+                .thenCompose(r -> {
+                    Object professional = ((Map<?, ?>) Json.parse(r)).get("professionalId");
+                    return send("POST", "/reports", Json.write(Map.of("professionalId", String.valueOf(professional),
+                            "fiscalCode", fiscalCode, "date", "2024-06-10", "description", "Visit of " + fiscalCode)));
+                })
+                .thenCompose(r -> send("POST", "/discharges", Json.write(Map.of("fiscalCode", fiscalCode, "department", specialization))));
+        if (i % 100 == 0)
+            flow = flow.thenCompose(r -> send("GET", "/counts?status=HOSPITALIZED&specialization=" + specialization, null));
+        return flow.thenApply(r -> null);
+    }
+
+    private CompletableFuture<String> send(String method, String path, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path)).timeout(Duration.ofSeconds(60));
+        if (body == null)
+            request.GET();
+        else
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(body));
+        long start = System.nanoTime();
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            int n = recorded.getAndIncrement();
+            if (n < latencies.length)
+                latencies[n] = System.nanoTime() - start;
+            statuses.computeIfAbsent(response.statusCode(), k -> new AtomicInteger()).incrementAndGet();
+            if (response.statusCode() != 200)
+                throw new CompletionException(new IllegalStateException(path + ": " + response.body()));
+            return response.body();
+        });
+    }
+
+    private void report(int connections, int patients, double seconds) {
+        int n = Math.min(recorded.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        System.out.printf("%d patients, %d connections: %d requests in %.2f s, %.0f requests/s%n",
+                          patients, connections, recorded.get(), seconds, recorded.get() / seconds);
+        if (n > 0)
+            System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n", percentile(sorted, 0.5),
+                              percentile(sorted, 0.9), percentile(sorted, 0.99), sorted[n - 1] / 1e6);
+        System.out.println("responses by status: " + statuses + ", failed patients: " + failures.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1e6;
+    }
+}
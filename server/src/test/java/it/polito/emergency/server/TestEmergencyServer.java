@@ -0,0 +1,107 @@
+package it.polito.emergency.server;
+
+import static org.junit.Assert.*;
+
+import it.polito.emergency.EmergencyApp;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestEmergencyServer {
+
+    private EmergencyServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeClass
+    public static void setUpClass() {
+        EmergencyServer.useNoDelay();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        EmergencyApp app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addDepartment("Cardiology", 1);
+        server = new EmergencyServer(app, new InetSocketAddress("localhost", 0));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Map<?, ?> ok(String method, String path, String body) throws Exception {
+        HttpResponse<String> response = send(method, path, body);
+        assertEquals(response.body(), 200, response.statusCode());
+        return (Map<?, ?>) Json.parse(response.body());
+    }
+
+    @Test
+    public void testPatientFlow() throws Exception {
+        Map<?, ?> patient = ok("POST", "/patients", "{\"fiscalCode\": \"A\", \"name\": \"Ann\", \"surname\": \"Rossi\","
+                + " \"dateOfBirth\": \"1980-01-01\", \"reason\": \"Chest pain\", \"dateTimeAccepted\": \"2024-06-10\", \"severity\": 1}");
+        assertEquals("ADMITTED", patient.get("status"));
+        assertEquals(1L, patient.get("severity"));
+        assertEquals("1", ok("POST", "/assignments", "{\"fiscalCode\": \"A\", \"specialization\": \"Cardiology\"}").get("professionalId"));
+        assertEquals("1", ok("POST", "/reports", "{\"professionalId\": \"1\", \"fiscalCode\": \"A\", \"date\": \"2024-06-10\","
+                + " \"description\": \"Angina\"}").get("id"));
+        assertEquals(true, ok("POST", "/discharges", "{\"fiscalCode\": \"A\", \"department\": \"Cardiology\"}").get("hospitalized"));
+        assertEquals(1L, ok("GET", "/counts?status=HOSPITALIZED&specialization=Cardiology", null).get("count"));
+        assertEquals(1L, ok("GET", "/counts/recent?window=PT15M", null).get("admissions"));
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        Map<?, ?> added = ok("POST", "/patients/batch", "[{\"fiscalCode\": \"A\", \"name\": \"Ann\", \"surname\": \"Rossi\","
+                + " \"dateOfBirth\": \"1980-01-01\", \"reason\": \"Fever\", \"dateTimeAccepted\": \"2024-06-10\"},"
+                + " {\"fiscalCode\": \"B\", \"name\": \"Bob\", \"surname\": \"Verdi\", \"dateOfBirth\": \"1980-01-01\","
+                + " \"reason\": \"Fever\", \"dateTimeAccepted\": \"2024-06-10\", \"severity\": 7}]");
+        assertEquals(Set.of("A"), ((Map<?, ?>) added.get("succeeded")).keySet());
+        assertEquals("Severity out of range!", ((Map<?, ?>) added.get("failed")).get("B"));
+        Map<?, ?> assigned = ok("POST", "/assignments/batch", "{\"A\": \"Cardiology\", \"Z\": \"Cardiology\"}");
+        assertEquals(Map.of("A", "1"), assigned.get("succeeded"));
+        assertEquals(Set.of("Z"), ((Map<?, ?>) assigned.get("failed")).keySet());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertEquals(404, send("GET", "/unknown", null).statusCode());
+        assertEquals(404, send("POST", "/patients/unknown", "{}").statusCode());
+        assertEquals(405, send("GET", "/patients", null).statusCode());
+        assertEquals(400, send("POST", "/patients", "{\"fiscalCode\": ").statusCode());
+        assertEquals(400, send("POST", "/patients", "{\"fiscalCode\": \"A\"}").statusCode());
+        assertEquals(400, send("POST", "/departments", "{\"name\": \"Surgery\"}").statusCode());
+        assertEquals(400, send("POST", "/departments", "{\"name\": \"Surgery\", \"maxPatients\": \"ten\"}").statusCode());
+        assertEquals(400, send("POST", "/departments", "{\"name\": \"Surgery\", \"maxPatients\": 2.7}").statusCode());
+        assertEquals(400, send("POST", "/departments", "{\"name\": \"Surgery\", \"maxPatients\": 4294967306}").statusCode());
+        assertEquals(400, send("POST", "/departments", "{\"name\": \"Surgery\", \"maxPatients\": 1e30}").statusCode());
+        assertEquals(413, send("POST", "/patients/batch", "[" + "0,".repeat(EmergencyServer.MAX_BODY / 2) + "0]").statusCode());
+        HttpResponse<String> refused = send("POST", "/assignments", "{\"fiscalCode\": \"Z\", \"specialization\": \"Cardiology\"}");
+        assertEquals(422, refused.statusCode());
+        assertEquals("No patient found with given fiscal code!", ((Map<?, ?>) Json.parse(refused.body())).get("error"));
+    }
+
+    @Test
+    public void testJson() {
+        Object value = Json.parse(" {\"a\": [1, 2.5, true, null, \"x\\\"\\u0041\"], \"b\": {}} ");
+        assertEquals(Map.of("a", Arrays.asList(1L, 2.5, true, null, "x\"A"), "b", Map.of()), value);
+        assertEquals("{\"a\":[1,2.5,true,null,\"x\\\"A\\n\"]}", Json.write(Map.of("a", Arrays.asList(1, 2.5, true, null, "x\"A\n"))));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[1,]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{} x"));
+    }
+}
@@ -0,0 +1,76 @@
+package it.polito.emergency;
+
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The recent activity of the emergency room in rolling windows: admissions, overall and
+ * by reason, assignments by specialization and the status changes of the patients.
+ * Memory is fixed: every counter is a {@link RollingCounter}, and at most
+ * {@link #MAX_KEYS} reasons or specializations are counted apart, later ones under {@link #OTHER},
+ * as are missing ones. Counting never fails, since it follows changes already applied.
+ */
+class ActivityWindows {
+
+    static final int MAX_KEYS = 1024;
+    static final String OTHER = "(other)";
+
+    private final RollingCounter admissions = new RollingCounter();
+    private final Map<String, RollingCounter> byReason = new ConcurrentHashMap<>();
+    private final Map<String, RollingCounter> bySpecialization = new ConcurrentHashMap<>();
+    private final Map<PatientStatus, RollingCounter> byStatus = new EnumMap<>(PatientStatus.class);
+    {
+        for (PatientStatus status : PatientStatus.values())
+            byStatus.put(status, new RollingCounter());
+    }
+
+    void admitted(String reason, long millis) {
+        admissions.increment(millis);
+        counter(byReason, reason).increment(millis);
+    }
+
+    void assigned(String specialization, long millis) {
+        counter(bySpecialization, specialization).increment(millis);
+    }
+
+    void moved(PatientStatus status, long millis) {
+        byStatus.get(status).increment(millis);
+    }
+
+    private static RollingCounter counter(Map<String, RollingCounter> counters, String key) {
+        if (key == null)
+            key = OTHER;
+        RollingCounter counter = counters.get(key);
+        if (counter != null)
+            return counter;
+        return counters.computeIfAbsent(counters.size() < MAX_KEYS ? key : OTHER, k -> new RollingCounter());
+    }
+
+    int admissions(long millis, Duration window) {
+        return (int) admissions.sum(millis, window);
+    }
+
+    Map<String, Integer> admissionsByReason(long millis, Duration window) {
+        return sums(byReason, millis, window);
+    }
+
+    Map<String, Integer> assignmentsBySpecialization(long millis, Duration window) {
+        return sums(bySpecialization, millis, window);
+    }
+
+    int statusChanges(PatientStatus status, long millis, Duration window) {
+        return (int) byStatus.get(status).sum(millis, window);
+    }
+
+    private static Map<String, Integer> sums(Map<String, RollingCounter> counters, long millis, Duration window) {
+        Map<String, Integer> result = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long sum = counter.sum(millis, window);
+            if (sum > 0)
+                result.put(key, (int) sum);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,194 @@
+package it.polito.emergency;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.locks.*;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only file of records, after a magic number. Each record is its length and
+ * the CRC-32C of its content, followed by the content.
+ * Appends are serialized, while making them durable uses group commit: a thread
+ * waiting for its record to reach the disk either forces the file itself, covering
+ * every record appended so far, or waits for the force already in progress.
+ * When the log is opened, it is cut at the first record that is torn or whose checksum
+ * does not match, as a crash can leave the last pages written in any order.
+ * Writers block on explicit locks rather than monitors, which would pin virtual threads
+ * to their carrier while writing or waiting.
+ */
+class AppendLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x45524c32; // "ERL2"
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final Lock writeLock = new ReentrantLock();
+    private volatile long end;
+    private final Lock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    // guarded by syncLock
+    private long durable;
+    private boolean syncing;
+
+    /**
+     * Opens the log, creating the file if missing.
+     *
+     * @param file The path of the log.
+     * @param recordStart Called with the position of every complete record found in the file, in order.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    AppendLog(Path file, LongConsumer recordStart) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        if (size < Integer.BYTES) {
+            // new, or torn before the magic number reached the disk
+            channel.truncate(0);
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC);
+            while (magic.hasRemaining())
+                channel.write(magic, magic.position());
+            channel.force(true);
+            size = Integer.BYTES;
+        } else {
+            header.limit(Integer.BYTES);
+            readFully(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException("Not a log of this version: " + file);
+            }
+        }
+        long position = Integer.BYTES;
+        ByteBuffer payload = ByteBuffer.allocate(256);
+        while (position + HEADER <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length < 0 || position + HEADER + length > size)
+                break;
+            if (payload.capacity() < length)
+                payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+            payload.clear().limit(length);
+            readFully(payload, position + HEADER);
+            if (checksum(payload.flip()) != header.getInt(Integer.BYTES))
+                break;
+            recordStart.accept(position);
+            position += HEADER + length;
+        }
+        if (position < size)
+            channel.truncate(position);
+        end = position;
+        durable = position;
+    }
+
+    /**
+     * Appends a record. The record is not durable until {@link #commit(long)} returns.
+     *
+     * @param payload The content of the record.
+     * @return The position of the record, used to read it back.
+     * @throws IOException If the record cannot be written.
+     */
+    long append(ByteBuffer payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(HEADER + payload.remaining());
+        record.putInt(payload.remaining()).putInt(checksum(payload)).put(payload).flip();
+        writeLock.lock();
+        try {
+            long position = end;
+            while (record.hasRemaining())
+                channel.write(record, position + record.position());
+            end = position + record.limit();
+            return position;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record at the given position, and every record before it, is on disk.
+     *
+     * @param position The position returned by {@link #append(ByteBuffer)}.
+     * @throws IOException If the file cannot be forced to disk.
+     */
+    void commit(long position) throws IOException {
+        syncLock.lock();
+        try {
+            while (durable <= position && syncing) {
+                try {
+                    synced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log", e);
+                }
+            }
+            if (durable > position)
+                return;
+            syncing = true;
+        } finally {
+            syncLock.unlock();
+        }
+        long target = end;
+        boolean forced = false;
+        try {
+            channel.force(false);
+            forced = true;
+        } finally {
+            syncLock.lock();
+            try {
+                if (forced)
+                    durable = Math.max(durable, target);
+                syncing = false;
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Forces every appended record to disk.
+     */
+    void commit() throws IOException {
+        long last = end;
+        if (last > 0)
+            commit(last - 1);
+    }
+
+    /**
+     * Reads a record back.
+     *
+     * @param position The position returned by {@link #append(ByteBuffer)}.
+     * @return The content of the record.
+     * @throws IOException If the record cannot be read, or was corrupted since the log was opened.
+     */
+    ByteBuffer read(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(header, position);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        readFully(payload, position + HEADER);
+        if (checksum(payload.flip()) != header.getInt(Integer.BYTES))
+            throw new IOException("Corrupted record at " + position);
+        return payload;
+    }
+
+    /** The CRC-32C of the remaining bytes of a buffer, leaving its position unchanged. */
+    private static int checksum(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of log at " + position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit();
+        channel.close();
+    }
+}
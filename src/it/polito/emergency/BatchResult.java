@@ -0,0 +1,58 @@
+package it.polito.emergency;
+
+import java.util.*;
+
+/**
+ * The outcome of a batch operation for each of its items, identified by fiscal code.
+ * Items are listed in the order they were processed.
+ *
+ * @param <T> The result of an item that succeeded.
+ */
+public class BatchResult<T> {
+
+    private final Map<String, T> succeeded = new LinkedHashMap<>();
+    private final Map<String, String> failed = new LinkedHashMap<>();
+
+    void succeed(String fiscalCode, T value) {
+        succeeded.put(fiscalCode, value);
+    }
+
+    void fail(String fiscalCode, String error) {
+        failed.put(fiscalCode, error);
+    }
+
+    /**
+     * @return The results of the items that succeeded, by fiscal code.
+     */
+    public Map<String, T> getSucceeded() {
+        return Collections.unmodifiableMap(succeeded);
+    }
+
+    /**
+     * @return The error messages of the items that failed, by fiscal code.
+     */
+    public Map<String, String> getFailed() {
+        return Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @param fiscalCode The fiscal code of an item.
+     * @return The result of the item, or null if it failed or was not in the batch.
+     */
+    public T get(String fiscalCode) {
+        return succeeded.get(fiscalCode);
+    }
+
+    /**
+     * @param fiscalCode The fiscal code of an item.
+     * @return The error message of the item, or null if it succeeded or was not in the batch.
+     */
+    public String getError(String fiscalCode) {
+        return failed.get(fiscalCode);
+    }
+
+    @Override
+    public String toString() {
+        return "succeeded " + succeeded.keySet() + ", failed " + failed;
+    }
+}
@@ -0,0 +1,68 @@
+package it.polito.emergency;
+
+/**
+ * Splits a CSV record into its fields without regular expressions.
+ * Fields are stripped of surrounding blanks; a field enclosed in double quotes
+ * may contain commas, and a doubled quote inside it stands for a literal quote.
+ */
+class CsvTokenizer {
+
+    private final String[] fields;
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * @param maxFields The number of fields kept from each record; any further field is ignored.
+     */
+    CsvTokenizer(int maxFields) {
+        this.fields = new String[maxFields];
+    }
+
+    /**
+     * Splits a record. The returned array is reused by the next call.
+     *
+     * @param line The record to split.
+     * @return The number of fields found, which may exceed the fields kept.
+     */
+    int split(CharSequence line) {
+        int count = 0;
+        int i = 0, n = line.length();
+        while (true) {
+            field.setLength(0);
+            boolean quoted = false;
+            while (i < n && line.charAt(i) == ' ')
+                i++;
+            if (i < n && line.charAt(i) == '"') {
+                quoted = true;
+                i++;
+                while (i < n) {
+                    char c = line.charAt(i++);
+                    if (c != '"')
+                        field.append(c);
+                    else if (i < n && line.charAt(i) == '"')
+                        field.append(line.charAt(i++));
+                    else
+                        break;
+                }
+            }
+            while (i < n && line.charAt(i) != ',') {
+                if (!quoted) // anything after a closing quote is ignored
+                    field.append(line.charAt(i));
+                i++;
+            }
+            if (count < fields.length)
+                fields[count] = quoted ? field.toString() : field.toString().strip();
+            count++;
+            if (i >= n)
+                return count;
+            i++; // skip the comma
+        }
+    }
+
+    /**
+     * @param index The position of the field in the last split record.
+     * @return The field, stripped of surrounding blanks.
+     */
+    String get(int index) {
+        return fields[index];
+    }
+}
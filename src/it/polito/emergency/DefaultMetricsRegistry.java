@@ -0,0 +1,112 @@
+package it.polito.emergency;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+/**
+ * Keeps the measurements in memory: a latency histogram per operation and error counters
+ * per operation and cause. Recording takes a few nanoseconds and allocates nothing,
+ * except the first time a cause of error is seen.
+ * The measurements can be read directly or through JMX, after {@link #registerMBean(String)}.
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry, EmergencyMetricsMXBean {
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final List<Map<String, LongAdder>> errors = new ArrayList<>();
+    private volatile long since = System.nanoTime();
+
+    public DefaultMetricsRegistry() {
+        for (Operation op : Operation.values()) {
+            latencies[op.ordinal()] = new LatencyHistogram();
+            errors.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void record(Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordError(Operation operation, String cause) {
+        errors.get(operation.ordinal()).computeIfAbsent(cause, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return The number of calls of an operation, failed ones included.
+     */
+    public long getCount(Operation operation) {
+        return latencies[operation.ordinal()].count();
+    }
+
+    /**
+     * @return The number of failed calls of an operation by cause.
+     */
+    public Map<String, Long> getErrors(Operation operation) {
+        Map<String, Long> temp = new TreeMap<>();
+        errors.get(operation.ordinal()).forEach((cause, count) -> temp.put(cause, count.sum()));
+        return temp;
+    }
+
+    /**
+     * @param quantile The quantile, between 0 and 1, e.g. 0.99.
+     * @return The latency of an operation at the quantile, in nanoseconds.
+     */
+    public long getPercentile(Operation operation, double quantile) {
+        return latencies[operation.ordinal()].percentile(quantile);
+    }
+
+    /**
+     * @return The statistics of an operation.
+     */
+    public OperationStats getStats(Operation operation) {
+        LatencyHistogram h = latencies[operation.ordinal()];
+        long count = h.count();
+        long errorCount = errors.get(operation.ordinal()).values().stream().mapToLong(LongAdder::sum).sum();
+        double seconds = Math.max(System.nanoTime() - since, 1) / 1e9;
+        return new OperationStats(operation.name(), count, errorCount, count / seconds, h.mean(),
+                                  h.percentile(0.5), h.percentile(0.99), h.percentile(0.999));
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> temp = new ArrayList<>();
+        for (Operation op : Operation.values())
+            if (latencies[op.ordinal()].count() > 0)
+                temp.add(getStats(op));
+        return temp;
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> temp = new TreeMap<>();
+        for (Operation op : Operation.values())
+            getErrors(op).forEach((cause, count) -> temp.put(op + ": " + cause, count));
+        return temp;
+    }
+
+    @Override
+    public void reset() {
+        for (Operation op : Operation.values()) {
+            latencies[op.ordinal()].reset();
+            errors.get(op.ordinal()).clear();
+        }
+        since = System.nanoTime();
+    }
+
+    /**
+     * Publishes the measurements on the platform MBean server.
+     *
+     * @param name The name distinguishing this emergency room from others in the same JVM.
+     * @return The name of the MBean, to unregister it.
+     * @throws JMException If the MBean cannot be registered, e.g. because the name is taken.
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("it.polito.emergency:type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+}
@@ -3,11 +3,29 @@ package it.polito.emergency;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.time.*;
 import java.util.stream.*;
 
-public class EmergencyApp {
+/**
+ * The emergency room.
+ * All the operations are thread-safe: the registries are concurrent maps, and the state of
+ * a patient or of a department is changed while holding that entity's monitor, so operations
+ * on different patients and departments proceed in parallel.
+ * Operations that change the state share a read-write lock, held exclusively only by
+ * {@link #snapshot(Path)} for the time it takes to copy the state.
+ */
+public class EmergencyApp implements AutoCloseable {
 
     public enum PatientStatus {
         ADMITTED,
@@ -15,13 +33,28 @@ public class EmergencyApp {
         HOSPITALIZED
     }
 
+    /**
+     * When a change logged by an emergency room opened on a directory is on disk.
+     */
+    public enum Durability {
+        /** Before the operation returns, with a force of the log for every change. */
+        PER_EVENT,
+        /** Before the operation returns, with concurrent operations sharing a force of the log. */
+        GROUP_COMMIT,
+        /** Shortly after the operation returns; a crash may lose the last few milliseconds of changes. */
+        ASYNC
+    }
+
     public class Department {
         String name;
-        int maxPatients, numPatients;
+        volatile int maxPatients;
+        // free beds, reserved and released with compare-and-set
+        private final AtomicInteger numPatients;
+        private final Set<String> hospitalized = ConcurrentHashMap.newKeySet();
 		public Department(String name, int maxPatients) {
 			this.name = name;
 			this.maxPatients = maxPatients;
-            this.numPatients = maxPatients;
+            this.numPatients = new AtomicInteger(maxPatients);
 		}
         public String getName() {
             return name;
@@ -29,26 +62,505 @@ public class EmergencyApp {
         public int getMaxPatients() {
             return maxPatients;
         }
+        /**
+         * @return The number of free beds.
+         */
         public int getNumPatients() {
-            return numPatients;
+            return numPatients.get();
         }
-        public void decrementNumPatients() {
-            numPatients--;
+        /**
+         * @return The fiscal codes of the patients hospitalized in the department.
+         */
+        public Set<String> getPatients() {
+            return Collections.unmodifiableSet(hospitalized);
         }
-        public void incementNumPatients() {
-
-            numPatients++;
+        boolean admit(String fiscalCode) {
+            int free;
+            do {
+                free = numPatients.get();
+                if (free <= 0)
+                    return false;
+            } while (!numPatients.compareAndSet(free, free - 1));
+            hospitalized.add(fiscalCode);
+            return true;
+        }
+        void release(String fiscalCode) {
+            if (hospitalized.remove(fiscalCode))
+                numPatients.incrementAndGet();
+        }
+        /**
+         * Changes the capacity, keeping the patients hospitalized; a department left with more
+         * patients than beds admits nobody until enough of them are released.
+         */
+        void resize(int maxPatients) {
+            numPatients.addAndGet(maxPatients - this.maxPatients);
+            this.maxPatients = maxPatients;
         }
     }
     
-    private final Map<String, Professional> professionals = new HashMap<>();
-    private final List<String> specializations = new ArrayList<>();
-    private final Map<String, Department> departments = new HashMap<>();
-    private final Map<String, Patient> patients = new HashMap<>();
-    private Map<Patient, Professional> assignedPatients = new HashMap<>();
-    private final Map<String, Report> reports = new HashMap<>();
-    private Map<Department, Patient> depPatients = new HashMap<>();
+    private final Map<String, Professional> professionals = new ConcurrentHashMap<>();
+    // the names and specializations shared by the records of this emergency room
+    private final Interner strings = new Interner();
+    private final Map<String, ShiftIndex> specializations = new ConcurrentHashMap<>();
+    private final Map<String, Department> departments = new ConcurrentHashMap<>();
+    private final Map<String, Patient> patients = new ConcurrentHashMap<>();
+    // the buckets of the patient indexes are guarded by their own monitor
+    private final NavigableMap<String, List<Patient>> patientsBySurname = new ConcurrentSkipListMap<>();
+    private final NavigableMap<LocalDate, List<Patient>> patientsByDate = new ConcurrentSkipListMap<>();
+    private final Map<PatientStatus, AtomicInteger> statusCounts = new EnumMap<>(PatientStatus.class);
+    {
+        for (PatientStatus status : PatientStatus.values())
+            statusCounts.put(status, new AtomicInteger());
+    }
+    private static final Comparator<Patient> BY_SURNAME_AND_NAME = Comparator.comparing(Patient::getSurname)
+                                                                .thenComparing(Patient::getName)
+                                                                .thenComparing(Patient::getFiscalCode);
+    private final Map<String, Professional> assignedPatients = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> dischargedBySpecialization = new ConcurrentHashMap<>();
+    private final ReportStore reports;
+    private final ReportIndex reportIndex = new ReportIndex();
+    private final ReportSearchIndex reportSearch = new ReportSearchIndex();
+    private volatile List<ImportError> importErrors = List.of();
+    private final TriageQueue triage = new TriageQueue();
+    // null unless enabled
+    private volatile PatientColumns columns;
+    // shared by the updates, exclusive while a snapshot copies the state
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    // one checkpoint at a time, from the capture to the truncation of the log
+    private final Lock checkpointLock = new ReentrantLock();
+    private final Lock updating = stateLock.readLock();
+    // null when the changes are not logged
+    private final EventLog events;
+    private final EventBus bus = new EventBus();
+    private volatile MetricsRegistry metrics = new DefaultMetricsRegistry();
+    // fed by the published changes only, so that the replayed ones do not count as recent
+    private final ActivityWindows activity = new ActivityWindows();
+    private volatile Clock clock = Clock.systemUTC();
+
+    private static final String REPORT_LOG = "reports.log";
+    private static final String SNAPSHOT_FILE = "state.snap";
+
+    /**
+     * Creates an emergency room that keeps its reports in memory.
+     */
+    public EmergencyApp() {
+        this.reports = new MemoryReportStore();
+        this.events = null;
+    }
+
+    /**
+     * Creates an emergency room that keeps its reports in an append-only log file.
+     * The reports already in the file are available, and new ones are numbered after them.
+     *
+     * @param reportLog The path of the report log, created if missing.
+     * @throws IOException If the log cannot be opened or read.
+     */
+    public EmergencyApp(Path reportLog) throws IOException {
+        this.reports = new FileReportStore(reportLog);
+        for (int id = 1; id <= reports.size(); id++)
+            indexReport(reports.get(id));
+        this.events = null;
+    }
+
+    /**
+     * Creates an emergency room that keeps its whole state in a directory, so that it survives a crash.
+     * Every change is recorded in a write-ahead event log, and reports are kept in a report log.
+     * On opening, the state of the last checkpoint is loaded and the changes logged after it
+     * are replayed; {@link #checkpoint()} keeps the replay short.
+     *
+     * @param directory The directory of the files, created if missing.
+     * @param durability When a change is on disk.
+     * @throws IOException If the files cannot be opened or read.
+     */
+    public EmergencyApp(Path directory, Durability durability) throws IOException {
+        Files.createDirectories(directory);
+        this.reports = new FileReportStore(directory.resolve(REPORT_LOG));
+        for (int id = 1; id <= reports.size(); id++)
+            indexReport(reports.get(id));
+        long after = 0;
+        Path state = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(state)) {
+            Snapshot snapshot = Snapshot.read(state, strings);
+            load(snapshot);
+            after = snapshot.sequence;
+        }
+        this.events = new EventLog(directory, durability, after, strings, this::apply);
+    }
+
+    /**
+     * Releases the files used by the emergency room, after making every saved report and logged change durable.
+     *
+     * @throws IOException If the files cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (events != null)
+            events.close();
+        reports.close();
+    }
 
+    /**
+     * @return The registry receiving the measurements of the operations, a {@link DefaultMetricsRegistry} unless replaced.
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metrics;
+    }
+
+    /**
+     * Replaces the registry receiving the measurements of the operations.
+     *
+     * @param registry The new registry; {@link MetricsRegistry#NONE} turns the measurements off.
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = Objects.requireNonNull(registry);
+    }
+
+    // package-private: lets tests move the time of the activity windows
+    void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /** An operation returning a value. */
+    @FunctionalInterface
+    private interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /** An operation returning an int, measured without boxing. */
+    @FunctionalInterface
+    private interface IntCall<E extends Exception> {
+        int call() throws E;
+    }
+
+    /** An operation returning nothing. */
+    @FunctionalInterface
+    private interface VoidCall<E extends Exception> {
+        void call() throws E;
+    }
+
+    private <T, E extends Exception> T timed(Operation operation, Call<T, E> call) throws E {
+        MetricsRegistry registry = metrics;
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            registry.recordError(operation, cause(e));
+            throw e;
+        } finally {
+            registry.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    private <E extends Exception> int timedInt(Operation operation, IntCall<E> call) throws E {
+        MetricsRegistry registry = metrics;
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            registry.recordError(operation, cause(e));
+            throw e;
+        } finally {
+            registry.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    private <E extends Exception> void timedVoid(Operation operation, VoidCall<E> call) throws E {
+        MetricsRegistry registry = metrics;
+        long start = System.nanoTime();
+        try {
+            call.call();
+        } catch (Exception e) {
+            registry.recordError(operation, cause(e));
+            throw e;
+        } finally {
+            registry.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    // the messages of EmergencyException are fixed, other messages may hold values and are left out
+    private static String cause(Exception e) {
+        if (e instanceof EmergencyException && e.getMessage() != null)
+            return e.getMessage();
+        return e.getClass().getSimpleName();
+    }
+
+    /**
+     * Subscribes to the changes of the emergency room, to keep a view of it up to date
+     * without polling. Changes are delivered after they are applied, in order of change
+     * for each patient; see {@link Subscription} for what happens when the queue is full.
+     *
+     * @param capacity The maximum number of changes queued for the subscriber.
+     * @param types The types of the changes of interest; none for every type.
+     * @return The subscription, to be closed when no longer needed.
+     */
+    public Subscription subscribe(int capacity, Event.Type... types) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        Set<Event.Type> wanted = types.length == 0 ? EnumSet.allOf(Event.Type.class) : EnumSet.copyOf(Arrays.asList(types));
+        return bus.subscribe(capacity, wanted);
+    }
+
+    /**
+     * Writes the whole state of the emergency room to a binary file: professionals, departments,
+     * patients with their status, severity, assignment and bed, and reports.
+     * The state is copied at a single point in time, during which updates wait; the file
+     * is written afterwards, while the emergency room keeps working.
+     *
+     * @param file The path of the snapshot, replaced if it exists.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void snapshot(Path file) throws IOException {
+        timedVoid(Operation.SNAPSHOT, () -> {
+            Snapshot snapshot = new Snapshot();
+            stateLock.writeLock().lock();
+            try {
+                capture(snapshot);
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            write(snapshot, true, file);
+        });
+    }
+
+    /**
+     * Copies the state into a snapshot, reports apart from their number; the caller holds the write lock.
+     */
+    private void capture(Snapshot snapshot) {
+        snapshot.sequence = events == null ? 0 : events.sequence();
+        snapshot.reportCount = reports.size();
+        for (ShiftIndex shifts : specializations.values())
+            for (String id : shifts.ids())
+                snapshot.professionals.add(professionals.get(id));
+        for (Department d : departments.values())
+            snapshot.departments.add(new Snapshot.DepartmentRecord(d.getName(), d.getMaxPatients()));
+        for (Patient p : patients.values()) {
+            Professional assigned = assignedPatients.get(p.getFiscalCode());
+            snapshot.patients.add(new Snapshot.PatientRecord(p, p.status, p.severity,
+                                    p.department == null ? null : p.department.getName(),
+                                    assigned == null ? null : assigned.getId(), p.arrival));
+        }
+    }
+
+    /**
+     * @param withReports True to copy the reports into the file, false when they stay in the
+     *                    report log next to it, which the snapshot then only counts.
+     */
+    private void write(Snapshot snapshot, boolean withReports, Path file) throws IOException {
+        // in order of arrival, so that restored indexes and queue see the patients as they came
+        snapshot.patients.sort(Comparator.comparingLong(r -> r.arrival));
+        // saved reports never change, they can be read after the lock is released
+        if (withReports)
+            for (int id = 1; id <= snapshot.reportCount; id++)
+                snapshot.reports.add(reports.get(id));
+        snapshot.write(file);
+    }
+
+    /**
+     * Writes a snapshot of the state to the directory of the emergency room and deletes the
+     * logged changes it covers, so that reopening the directory replays only later changes.
+     * Like {@link #snapshot(Path)}, updates wait only while the state is copied; concurrent
+     * checkpoints take turns.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     * @throws IllegalStateException If the emergency room was not opened on a directory.
+     */
+    public void checkpoint() throws IOException {
+        timedVoid(Operation.CHECKPOINT, () -> {
+            if (events == null)
+                throw new IllegalStateException("The changes of this emergency room are not logged");
+            writeCheckpoint();
+        });
+    }
+
+    private void writeCheckpoint() throws IOException {
+        // a concurrent checkpoint could otherwise move an older snapshot over a newer one
+        // whose truncation already deleted the changes the older one needs
+        checkpointLock.lock();
+        try {
+            Snapshot snapshot = new Snapshot();
+            stateLock.writeLock().lock();
+            try {
+                capture(snapshot);
+                events.rotate();
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            // the snapshot is on disk, moved in place and its directory forced, before the changes it covers go;
+            // the reports are already on disk in the report log of the directory
+            write(snapshot, false, events.directory().resolve(SNAPSHOT_FILE));
+            events.truncate(snapshot.sequence);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the state written by {@link #snapshot(Path)} into an empty emergency room.
+     * Reports already in the report log of this emergency room are kept, and only the
+     * ones beyond them are taken from the snapshot. If the emergency room was opened on a
+     * directory, a {@link #checkpoint()} follows, so that the restored state is durable.
+     * Subscribers receive a {@link Event.Type#RESYNC} event.
+     *
+     * @param file The path of the snapshot.
+     * @throws IOException If the snapshot cannot be read, or the reports cannot be saved.
+     * @throws IllegalStateException If professionals, departments or patients are already registered.
+     */
+    public void restore(Path file) throws IOException {
+        timedVoid(Operation.RESTORE, () -> {
+            load(Snapshot.read(file, strings));
+            if (events != null)
+                writeCheckpoint();
+            publish(Event.resync());
+        });
+    }
+
+    private void load(Snapshot snapshot) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            if (!professionals.isEmpty() || !departments.isEmpty() || !patients.isEmpty())
+                throw new IllegalStateException("Cannot restore into a non-empty emergency room");
+            for (Professional p : snapshot.professionals)
+                putProfessional(p);
+            for (Snapshot.DepartmentRecord d : snapshot.departments)
+                putDepartment(d.name, d.maxPatients);
+            for (Snapshot.PatientRecord r : snapshot.patients) {
+                Patient patient = r.patient;
+                patient.arrival = r.arrival;
+                register(patient);
+                synchronized (patient) {
+                    Professional assigned = r.professional == null ? null : professionals.get(r.professional);
+                    if (assigned != null) {
+                        assignedPatients.put(patient.getFiscalCode(), assigned);
+                        charge(assigned, 1);
+                        triage.remove(patient);
+                    }
+                    Department department = r.department == null ? null : departments.get(r.department);
+                    if (department != null && department.admit(patient.getFiscalCode()))
+                        patient.department = department;
+                    changeStatus(patient, r.status);
+                }
+            }
+            if (reports.size() < snapshot.reportCount && snapshot.reports.size() < snapshot.reportCount)
+                throw new IOException("The snapshot covers " + snapshot.reportCount + " reports, only "
+                                      + Math.max(reports.size(), snapshot.reports.size()) + " are available");
+            List<Report> missing = snapshot.reports.subList(Math.min(reports.size(), snapshot.reports.size()), snapshot.reports.size());
+            int first = reports.size() + 1;
+            reports.appendAll(missing);
+            for (int id = first; id <= reports.size(); id++)
+                indexReport(reports.get(id));
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a logged change while the event log is replayed.
+     */
+    private void apply(Event event) {
+        switch (event.type) {
+            case PROFESSIONAL_ADDED -> putProfessional(event.professional);
+            case DEPARTMENT_ADDED -> putDepartment(event.key, event.value);
+            case PATIENT_ADDED -> register(event.patient);
+            case SEVERITY_CHANGED -> changeSeverity(patients.get(event.key), event.value);
+            case ASSIGNED -> {
+                Patient patient = patients.get(event.key);
+                Professional selected = professionals.get(event.target);
+                synchronized (patient) {
+                    boolean discharged = patient.getStatus() == PatientStatus.DISCHARGED;
+                    Professional previous = assignedPatients.get(event.key);
+                    if (previous != null && !discharged)
+                        charge(previous, -1);
+                    charge(selected, 1);
+                    setAssignment(patient, previous, selected, discharged);
+                }
+            }
+            case HOSPITALIZED -> {
+                Patient patient = patients.get(event.key);
+                Department department = departments.get(event.target);
+                synchronized (patient) {
+                    department.admit(event.key);
+                    leaveDepartment(patient);
+                    patient.department = department;
+                    changeStatus(patient, PatientStatus.HOSPITALIZED);
+                }
+            }
+            case DISCHARGED -> {
+                Patient patient = patients.get(event.key);
+                synchronized (patient) {
+                    leaveDepartment(patient);
+                    changeStatus(patient, PatientStatus.DISCHARGED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a change in the activity windows and delivers it to the subscribers.
+     */
+    private void publish(Event event) {
+        long now = clock.millis();
+        switch (event.type) {
+            case PATIENT_ADDED -> activity.admitted(event.patient.getReason(), now);
+            case ASSIGNED -> {
+                Professional assigned = professionals.get(event.target);
+                activity.assigned(assigned == null ? null : assigned.getSpecialization(), now);
+            }
+            case HOSPITALIZED -> activity.moved(PatientStatus.HOSPITALIZED, now);
+            case DISCHARGED -> activity.moved(PatientStatus.DISCHARGED, now);
+            default -> { }
+        }
+        bus.publish(event);
+    }
+
+    /**
+     * Logs a change, if changes are logged; the caller holds the read lock and,
+     * for a change of a patient, the patient's monitor.
+     *
+     * @return The position to pass to {@link #commit(long)}, or -1 if changes are not logged.
+     * @throws UncheckedIOException If the event log cannot be written.
+     */
+    private long record(Event event) {
+        if (events == null)
+            return -1;
+        try {
+            event.position = events.append(event);
+            return event.position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits until a logged change is durable; the caller still holds the read lock
+     * it held when the change was logged, and no monitor.
+     */
+    private void commit(long position) {
+        if (position < 0)
+            return;
+        try {
+            events.commit(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits until every logged change is on disk, for the imports that log their rows under
+     * the read lock one at a time and force the log once at the end, even if checkpoints
+     * rotated it meanwhile.
+     */
+    private void commitAll() {
+        if (events == null)
+            return;
+        updating.lock();
+        try {
+            events.commitAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            updating.unlock();
+        }
+    }
 
     /**
      * Add a professional working in the emergency room
@@ -61,8 +573,74 @@ public class EmergencyApp {
      * @param workingHours
      */
     public void addProfessional(String id, String name, String surname, String specialization, String period) {
-        professionals.put(id, new Professional(id, name, surname, specialization, period));
-        specializations.add(specialization);
+        timedVoid(Operation.ADD_PROFESSIONAL, () -> {
+            updating.lock();
+            try {
+                commit(addProfessional(new Professional(id, name, surname, specialization, period, null, strings)));
+            } finally {
+                updating.unlock();
+            }
+        });
+    }
+
+    /**
+     * Logs and registers a professional; the caller holds the read lock.
+     *
+     * @return The position of the change in the event log, to be committed by the caller.
+     */
+    private long addProfessional(Professional professional) {
+        // roster changes are rare, serialize them to keep the log, the map and the index in step
+        synchronized (specializations) {
+            Event event = Event.professionalAdded(professional);
+            long position = record(event);
+            putProfessional(professional);
+            publish(event);
+            return position;
+        }
+    }
+
+    /**
+     * Logs and registers a roster in one step under the roster lock, with one update of the
+     * index of each specialization; the caller holds the read lock.
+     *
+     * @return The position of the last change in the event log, to be committed by the caller.
+     */
+    private long addProfessionals(List<Professional> roster) {
+        synchronized (specializations) {
+            long position = -1;
+            List<Event> added = new ArrayList<>(roster.size());
+            for (Professional p : roster) {
+                Event event = Event.professionalAdded(p);
+                position = record(event);
+                added.add(event);
+            }
+            // the last line of a repeated ID wins, as when they are added one by one
+            Map<String, Professional> byId = new LinkedHashMap<>();
+            for (Professional p : roster)
+                byId.put(p.getId(), p);
+            Map<String, List<Professional>> bySpecialization = new HashMap<>();
+            for (Professional p : byId.values()) {
+                Professional previous = professionals.put(p.getId(), p);
+                if (previous != null && !previous.getSpecialization().equals(p.getSpecialization()))
+                    specializations.get(previous.getSpecialization()).remove(p.getId());
+                bySpecialization.computeIfAbsent(p.getSpecialization(), k -> new ArrayList<>()).add(p);
+            }
+            bySpecialization.forEach((specialization, members) ->
+                specializations.computeIfAbsent(specialization, k -> new ShiftIndex()).addAll(members));
+            added.forEach(this::publish);
+            return position;
+        }
+    }
+
+    private void putProfessional(Professional professional) {
+        String id = professional.getId();
+        synchronized (specializations) {
+            Professional previous = professionals.put(id, professional);
+            // a re-registered ID may have changed specialization
+            if (previous != null && !previous.getSpecialization().equals(professional.getSpecialization()))
+                specializations.get(previous.getSpecialization()).remove(id);
+            specializations.computeIfAbsent(professional.getSpecialization(), k -> new ShiftIndex()).add(professional);
+        }
     }
 
     /**
@@ -73,9 +651,11 @@ public class EmergencyApp {
      * @throws EmergencyException If no professional is found.
      */    
     public Professional getProfessionalById(String id) throws EmergencyException {
-        if (!professionals.containsKey(id))
-            throw new EmergencyException("Professional not found!");
-        return professionals.get(id);
+        return timed(Operation.GET_PROFESSIONAL_BY_ID, () -> {
+            if (!professionals.containsKey(id))
+                throw new EmergencyException("Professional not found!");
+            return professionals.get(id);
+        });
     }
 
     /**
@@ -86,12 +666,12 @@ public class EmergencyApp {
      * @throws EmergencyException If no professionals are found with the specified specialization.
      */    
     public List<String> getProfessionals(String specialization) throws EmergencyException {
-        if (!specializations.contains(specialization))
-            throw new EmergencyException("No professionals found with given specialization!");
-        return professionals.values().stream()
-            .filter(p -> p.getSpecialization().equals(specialization))
-            .map(Professional::getId)
-            .toList();
+        return timed(Operation.GET_PROFESSIONALS, () -> {
+            ShiftIndex shifts = specializations.get(specialization);
+            if (shifts == null || shifts.isEmpty())
+                throw new EmergencyException("No professionals found with given specialization!");
+            return shifts.ids();
+        });
     }
 
     /**
@@ -103,16 +683,19 @@ public class EmergencyApp {
      * @throws EmergencyException If no professionals are found with the specified specialization and period.
      */    
     public List<String> getProfessionalsInService(String specialization, String period) throws EmergencyException {
-        LocalDate startPeriod = LocalDate.parse(period.split(" to ")[0]);
-        LocalDate endPeriod = LocalDate.parse(period.split(" to ")[1]);
-        List<String> temp = professionals.values().stream()
-                                .filter(p -> p.getSpecialization().equals(specialization))
-                                .filter(p -> p.getStart().compareTo(startPeriod) <= 0 && p.getEnd().compareTo(endPeriod) >= 0)
-                                .map(Professional::getId)
-                                .toList();
-        if (temp.isEmpty())
-            throw new EmergencyException("No professionals found within given period and specialization!");
-        return temp;
+        return timed(Operation.GET_PROFESSIONALS_IN_SERVICE, () -> {
+            LocalDate startPeriod = LocalDate.parse(period.split(" to ")[0]);
+            LocalDate endPeriod = LocalDate.parse(period.split(" to ")[1]);
+            ShiftIndex shifts = specializations.get(specialization);
+            List<String> temp = shifts == null ? List.of() :
+                                    shifts.covering(startPeriod, endPeriod).stream()
+                                    .map(Professional::getId)
+                                    .sorted()
+                                    .toList();
+            if (temp.isEmpty())
+                throw new EmergencyException("No professionals found within given period and specialization!");
+            return temp;
+        });
     }
 
     /**
@@ -123,7 +706,38 @@ public class EmergencyApp {
      * @throws EmergencyException If the department already exists.
      */
     public void addDepartment(String name, int maxPatients) {
-        departments.put(name, new Department(name, maxPatients));
+        timedVoid(Operation.ADD_DEPARTMENT, () -> {
+            updating.lock();
+            try {
+                commit(logDepartment(name, maxPatients));
+            } finally {
+                updating.unlock();
+            }
+        });
+    }
+
+    /**
+     * Logs and registers a department; the caller holds the read lock.
+     *
+     * @return The position of the change in the event log, to be committed by the caller.
+     */
+    private long logDepartment(String name, int maxPatients) {
+        synchronized (departments) {
+            Event event = Event.departmentAdded(name, maxPatients);
+            long position = record(event);
+            putDepartment(name, maxPatients);
+            publish(event);
+            return position;
+        }
+    }
+
+    // a department added again keeps its patients and only takes the new capacity
+    private void putDepartment(String name, int maxPatients) {
+        Department department = departments.get(name);
+        if (department == null)
+            departments.put(name, new Department(name, maxPatients));
+        else
+            department.resize(maxPatients);
     }
 
     /**
@@ -133,77 +747,187 @@ public class EmergencyApp {
      * @throws EmergencyException If no departments are found.
      */
     public List<String> getDepartments() throws EmergencyException {
-        if (departments.isEmpty())
-            throw new EmergencyException("No registered departments found!");
-        return departments.values().stream().map(Department::getName).toList();
+        return timed(Operation.GET_DEPARTMENTS, () -> {
+            if (departments.isEmpty())
+                throw new EmergencyException("No registered departments found!");
+            return departments.values().stream().map(Department::getName).toList();
+        });
     }
 
     /**
      * Reads professional data from a CSV file and stores it in the application.
      * Each line of the CSV should contain a professional's ID, name, surname, specialization, period of availability, and working hours.
      * The expected format of each line is: matricola, nome, cognome, specializzazione, period, orari_lavoro
+     * The file is processed one line at a time; lines that cannot be parsed are skipped
+     * and reported by {@link #getImportErrors()}.
      * 
      * @param reader The reader used to read the CSV file. Must not be null.
      * @return The number of professionals successfully read and stored from the file.
      * @throws IOException If there is an error reading from the file or if the reader is null.
      */
     public int readFromFileProfessionals(Reader reader) throws IOException {
-        if (reader == null) 
-            throw new IOException("Null reader input!");
-        List<String> content;
-        int count = 0;
-        try (BufferedReader in = new BufferedReader(reader)) {
-			content = in.lines().collect(Collectors.toList());
-		} catch (IOException e) {
-			throw new IOException(e.getMessage());
-		}
-        for (String lines: content) {
-            // to skip the header
-            if (count == 0) {
-                count++;
-            } else {
-                String[] temp = lines.split(",");
-                addProfessional(temp[0].strip(), temp[1].strip(), temp[2].strip(), temp[3].strip(), temp[4].strip());
-                count++;
-                specializations.add(temp[3].strip());
+        return timedInt(Operation.READ_PROFESSIONALS, () -> {
+            if (reader == null) 
+                throw new IOException("Null reader input!");
+            List<ImportError> errors = new ArrayList<>();
+            CsvTokenizer fields = new CsvTokenizer(6);
+            int count = 0, lineNumber = 0;
+            try (BufferedReader in = new BufferedReader(reader)) {
+                String line = in.readLine(); // to skip the header
+                lineNumber++;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank())
+                        continue;
+                    try {
+                        Professional p = parseProfessional(fields, line, strings);
+                        // one row at a time, so that a waiting checkpoint does not stall the intake
+                        updating.lock();
+                        try {
+                            addProfessional(p);
+                        } finally {
+                            updating.unlock();
+                        }
+                        count++;
+                    } catch (EmergencyException e) {
+                        errors.add(new ImportError(lineNumber, e.getMessage()));
+                    }
+                }
+            }
+            // a single wait for the whole file
+            if (count > 0)
+                commitAll();
+            importErrors = errors;
+            return count;
+        });
+    }
+
+    /**
+     * Reads professional data from a CSV file in parallel and stores it in the application.
+     * The file has the same format accepted by {@link #readFromFileProfessionals(Reader)}; it is split
+     * into line-aligned chunks that are parsed on the common fork-join pool, and once every chunk
+     * has been parsed the roster is published at once: each specialization shows either none or
+     * all of its professionals from the file. As with the sequential reader, the last line of a
+     * repeated ID wins.
+     * Lines that cannot be parsed are skipped and reported by {@link #getImportErrors()}.
+     *
+     * @param file The path of the CSV file, encoded in UTF-8.
+     * @return The number of professionals successfully read and stored from the file.
+     * @throws IOException If there is an error reading from the file or if the path is null.
+     */
+    public int readFromFileProfessionalsParallel(Path file) throws IOException {
+        return readProfessionalsParallel(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads professional data from a CSV file in parallel, as {@link #readFromFileProfessionalsParallel(Path)}
+     * does, parsing the chunks on the given pool instead of the common one.
+     *
+     * @param file The path of the CSV file, encoded in UTF-8.
+     * @param pool The fork-join pool that parses the chunks.
+     * @return The number of professionals successfully read and stored from the file.
+     * @throws IOException If there is an error reading from the file or if the path is null.
+     */
+    public int readFromFileProfessionalsParallel(Path file, ForkJoinPool pool) throws IOException {
+        return readProfessionalsParallel(file, pool);
+    }
+
+    private int readProfessionalsParallel(Path file, ForkJoinPool pool) throws IOException {
+        return timedInt(Operation.READ_PROFESSIONALS_PARALLEL, () -> {
+            if (file == null)
+                throw new IOException("Null file input!");
+            List<ParallelProfessionalReader.Chunk> chunks = new ParallelProfessionalReader(pool, strings).read(file);
+            List<ImportError> errors = new ArrayList<>();
+            List<Professional> roster = new ArrayList<>();
+            for (ParallelProfessionalReader.Chunk chunk : chunks) {
+                roster.addAll(chunk.professionals);
+                errors.addAll(chunk.errors);
+            }
+            // parsed already: the lock is held only to log and publish
+            updating.lock();
+            try {
+                commit(addProfessionals(roster));
+            } finally {
+                updating.unlock();
             }
+            importErrors = errors;
+            return roster.size();
+        });
+    }
 
+    static Professional parseProfessional(CsvTokenizer fields, String line, Interner strings) throws EmergencyException {
+        if (fields.split(line) < 5)
+            throw new EmergencyException("Missing column, expected id, name, surname, specialization, period");
+        String period = fields.get(4);
+        if (!period.contains(" to "))
+            throw new EmergencyException("Malformed period: " + period);
+        try {
+            return new Professional(fields.get(0), fields.get(1), fields.get(2), fields.get(3), period, null, strings);
+        } catch (DateTimeException e) {
+            throw new EmergencyException("Malformed period: " + period);
         }
-        return count-1;
     }
 
     /**
      * Reads department data from a CSV file and stores it in the application.
      * Each line of the CSV should contain a department's name and the maximum number of patients it can accommodate.
      * The expected format of each line is: nome_reparto, num_max
+     * The file is processed one line at a time; lines that cannot be parsed are skipped
+     * and reported by {@link #getImportErrors()}.
      * 
      * @param reader The reader used to read the CSV file. Must not be null.
      * @return The number of departments successfully read and stored from the file.
      * @throws IOException If there is an error reading from the file or if the reader is null.
      */    
     public int readFromFileDepartments(Reader reader) throws IOException {
-        if (reader == null) 
-            throw new IOException("Null reader input!");
-        List<String> content;
-        int count = 0;
-        try (BufferedReader in = new BufferedReader(reader)) {
-			content = in.lines().collect(Collectors.toList());
-		} catch (IOException e) {
-			throw new IOException(e.getMessage());
-		}
-        for (String lines: content) {
-            // to skip the header
-            if (count == 0) {
-                count++;
-            } else {
-                String[] temp = lines.split(",");
-                addDepartment(temp[0].strip(), Integer.valueOf(temp[1].strip()));
-                count++;
+        return timedInt(Operation.READ_DEPARTMENTS, () -> {
+            if (reader == null) 
+                throw new IOException("Null reader input!");
+            List<ImportError> errors = new ArrayList<>();
+            CsvTokenizer fields = new CsvTokenizer(2);
+            int count = 0, lineNumber = 0;
+            try (BufferedReader in = new BufferedReader(reader)) {
+                String line = in.readLine(); // to skip the header
+                lineNumber++;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank())
+                        continue;
+                    if (fields.split(line) < 2) {
+                        errors.add(new ImportError(lineNumber, "Missing column, expected departmentName, maxPatients"));
+                        continue;
+                    }
+                    int maxPatients;
+                    try {
+                        maxPatients = Integer.parseInt(fields.get(1));
+                    } catch (NumberFormatException e) {
+                        errors.add(new ImportError(lineNumber, "Malformed maximum number of patients: " + fields.get(1)));
+                        continue;
+                    }
+                    updating.lock();
+                    try {
+                        logDepartment(fields.get(0), maxPatients);
+                    } finally {
+                        updating.unlock();
+                    }
+                    count++;
+                }
             }
+            if (count > 0)
+                commitAll();
+            importErrors = errors;
+            return count;
+        });
+    }
 
-            
-        }
-        return count-1;
+    /**
+     * Retrieves the lines rejected by the last call to {@link #readFromFileProfessionals(Reader)}
+     * or {@link #readFromFileDepartments(Reader)}.
+     *
+     * @return The rejected lines, or an empty list if every line was imported.
+     */
+    public List<ImportError> getImportErrors() {
+        return importErrors;
     }
 
     /**
@@ -215,10 +939,284 @@ public class EmergencyApp {
      * @param dateOfBirth The birth date of the patient.
      * @param reason The reason for the patient's visit.
      * @param dateTimeAccepted The date and time the patient was accepted into the emergency system.
+     * @return The new patient, or the existing one if the fiscal code is already registered.
      */
     public Patient addPatient(String fiscalCode, String name, String surname, String dateOfBirth, String reason, String dateTimeAccepted) {
-        patients.put(fiscalCode, new Patient(fiscalCode, name, surname, dateOfBirth, reason, dateTimeAccepted));
-        return patients.get(fiscalCode);
+        return addPatient(fiscalCode, name, surname, dateOfBirth, reason, dateTimeAccepted, Patient.DEFAULT_SEVERITY);
+    }
+
+    /**
+     * Registers a new patient in the emergency system if they do not exist, with a triage severity,
+     * and queues them for a professional.
+     *
+     * @param fiscalCode The fiscal code of the patient, used as a unique identifier.
+     * @param name The first name of the patient.
+     * @param surname The surname of the patient.
+     * @param dateOfBirth The birth date of the patient.
+     * @param reason The reason for the patient's visit.
+     * @param dateTimeAccepted The date and time the patient was accepted into the emergency system.
+     * @param severity The triage severity, from {@link Patient#MOST_URGENT} to {@link Patient#LEAST_URGENT}.
+     * @return The new patient, or the existing one if the fiscal code is already registered.
+     */
+    public Patient addPatient(String fiscalCode, String name, String surname, String dateOfBirth, String reason, String dateTimeAccepted, int severity) {
+        return timed(Operation.ADD_PATIENT, () -> {
+            Patient known = patients.get(fiscalCode);
+            if (known != null)
+                return known;
+            Patient patient = new Patient(fiscalCode, name, surname, LocalDate.parse(dateOfBirth), reason,
+                                          LocalDate.parse(dateTimeAccepted), checkSeverity(severity), strings);
+            updating.lock();
+            try {
+                Patient existing;
+                long position = -1;
+                // logged before any other change of the new patient
+                synchronized (patient) {
+                    existing = register(patient);
+                    if (existing == null) {
+                        Event event = Event.patientAdded(patient);
+                        position = record(event);
+                        publish(event);
+                    }
+                }
+                commit(position);
+                return existing == null ? patient : existing;
+            } finally {
+                updating.unlock();
+            }
+        });
+    }
+
+    /**
+     * Registers and queues a patient, unless one with the same fiscal code is already registered.
+     *
+     * @param patient The new patient.
+     * @return The patient already registered with the same fiscal code, or null if the given one was registered.
+     */
+    private Patient register(Patient patient) {
+        Patient existing = claim(patient);
+        if (existing != null)
+            return existing;
+        List<Patient> sameSurname = patientsBySurname.computeIfAbsent(surnameKey(patient.getSurname()), k -> new ArrayList<>());
+        synchronized (sameSurname) {
+            sameSurname.add(patient);
+        }
+        // each day is kept in the order getPatientsByDate returns it
+        List<Patient> day = patientsByDate.computeIfAbsent(patient.getDateAccepted(), k -> new ArrayList<>());
+        synchronized (day) {
+            int pos = Collections.binarySearch(day, patient, BY_SURNAME_AND_NAME);
+            day.add(pos < 0 ? -pos - 1 : pos, patient);
+        }
+        return null;
+    }
+
+    /**
+     * Registers and queues a patient, unless one with the same fiscal code is already registered,
+     * without adding them to the indexes by surname and date.
+     *
+     * @return The patient already registered with the same fiscal code, or null if the given one was registered.
+     */
+    private Patient claim(Patient patient) {
+        // counted before any other thread can change the status of the new patient
+        synchronized (patient) {
+            Patient existing = patients.putIfAbsent(patient.getFiscalCode(), patient);
+            if (existing != null) // registered meanwhile by another thread
+                return existing;
+            statusCounts.get(PatientStatus.ADMITTED).incrementAndGet();
+            triage.add(patient);
+            PatientColumns store = columns;
+            if (store != null)
+                patient.row = store.add(patient);
+            return null;
+        }
+    }
+
+    /**
+     * Adds newly registered patients to the indexes by surname and date, taking the
+     * monitor of each bucket once and merging each day with the new patients sorted.
+     */
+    private void addToIndexes(List<Patient> added) {
+        Map<String, List<Patient>> bySurname = new HashMap<>();
+        Map<LocalDate, List<Patient>> byDate = new HashMap<>();
+        for (Patient p : added) {
+            bySurname.computeIfAbsent(surnameKey(p.getSurname()), k -> new ArrayList<>()).add(p);
+            byDate.computeIfAbsent(p.getDateAccepted(), k -> new ArrayList<>()).add(p);
+        }
+        bySurname.forEach((key, group) -> {
+            List<Patient> bucket = patientsBySurname.computeIfAbsent(key, k -> new ArrayList<>());
+            synchronized (bucket) {
+                bucket.addAll(group);
+            }
+        });
+        byDate.forEach((day, group) -> {
+            group.sort(BY_SURNAME_AND_NAME);
+            List<Patient> bucket = patientsByDate.computeIfAbsent(day, k -> new ArrayList<>());
+            synchronized (bucket) {
+                List<Patient> merged = new ArrayList<>(bucket.size() + group.size());
+                int i = 0, j = 0;
+                while (i < bucket.size() || j < group.size()) {
+                    if (j == group.size() || (i < bucket.size() && BY_SURNAME_AND_NAME.compare(bucket.get(i), group.get(j)) <= 0))
+                        merged.add(bucket.get(i++));
+                    else
+                        merged.add(group.get(j++));
+                }
+                bucket.clear();
+                bucket.addAll(merged);
+            }
+        });
+    }
+
+    /**
+     * Registers a batch of patients, e.g. the arrivals of an ambulance surge, and queues them
+     * for a professional. Like {@link #addPatient(String, String, String, String, String, String, int)},
+     * a patient whose fiscal code is already registered is not registered again.
+     * The emergency room registers copies of the given patients, which the caller may reuse.
+     * The batch is logged with a single wait for the disk, and the indexes are updated once for all.
+     *
+     * @param batch The new patients.
+     * @return The registered patient for each fiscal code, either the copy of the new one or the existing one,
+     *         and the errors of the patients with a severity out of range.
+     */
+    public BatchResult<Patient> addPatients(Collection<Patient> batch) {
+        return timed(Operation.ADD_PATIENTS, () -> {
+            BatchResult<Patient> result = new BatchResult<>();
+            List<Patient> added = new ArrayList<>(batch.size());
+            long position = -1;
+            updating.lock();
+            try {
+                for (Patient given : batch) {
+                    int severity = given.getSeverity();
+                    if (severity < Patient.MOST_URGENT || severity > Patient.LEAST_URGENT) {
+                        result.fail(given.getFiscalCode(), "Severity out of range!");
+                        continue;
+                    }
+                    // the status, bed and queue position of a patient belong to the emergency room
+                    Patient patient = new Patient(given.getFiscalCode(), given.getName(), given.getSurname(),
+                                                  given.getBirthDate(), given.getReason(), given.getDateAccepted(), severity, strings);
+                    Patient existing;
+                    // logged before any other change of the new patient
+                    synchronized (patient) {
+                        existing = claim(patient);
+                        if (existing == null) {
+                            Event event = Event.patientAdded(patient);
+                            position = record(event);
+                            publish(event);
+                            added.add(patient);
+                        }
+                    }
+                    result.succeed(patient.getFiscalCode(), existing == null ? patient : existing);
+                }
+                addToIndexes(added);
+                commit(position);
+            } finally {
+                updating.unlock();
+            }
+            return result;
+        });
+    }
+
+    private static int checkSeverity(int severity) {
+        if (severity < Patient.MOST_URGENT || severity > Patient.LEAST_URGENT)
+            throw new IllegalArgumentException("Severity out of range: " + severity);
+        return severity;
+    }
+
+    /**
+     * Changes the triage severity of a patient, moving them in the queue if they are still waiting.
+     *
+     * @param fiscalCode The fiscal code of the patient.
+     * @param severity The new severity, from {@link Patient#MOST_URGENT} to {@link Patient#LEAST_URGENT}.
+     * @throws EmergencyException If the patient does not exist or the severity is out of range.
+     */
+    public void setPatientSeverity(String fiscalCode, int severity) throws EmergencyException {
+        timedVoid(Operation.SET_PATIENT_SEVERITY, () -> {
+            Patient patient = patients.get(fiscalCode);
+            if (patient == null)
+                throw new EmergencyException("No patient found with given fiscal code!");
+            if (severity < Patient.MOST_URGENT || severity > Patient.LEAST_URGENT)
+                throw new EmergencyException("Severity out of range!");
+            updating.lock();
+            try {
+                long position;
+                synchronized (patient) {
+                    Event event = Event.severityChanged(fiscalCode, severity);
+                    position = record(event);
+                    changeSeverity(patient, severity);
+                    publish(event);
+                }
+                commit(position);
+            } finally {
+                updating.unlock();
+            }
+        });
+    }
+
+    private void changeSeverity(Patient patient, int severity) {
+        synchronized (patient) {
+            synchronized (triage) {
+                patient.severity = severity;
+                triage.update(patient);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the patients waiting for a professional, most urgent first.
+     * Patients are ordered by severity, then by date of acceptance, then by order of arrival.
+     *
+     * @return The fiscal codes of the waiting patients.
+     */
+    public List<String> getTriageQueue() {
+        return timed(Operation.GET_TRIAGE_QUEUE, () -> triage.toList().stream().map(Patient::getFiscalCode).toList());
+    }
+
+    /**
+     * Retrieves the next patient to be treated, without removing them from the queue.
+     *
+     * @return The most urgent waiting patient, or null if nobody is waiting.
+     */
+    public Patient getNextPatient() {
+        return timed(Operation.GET_NEXT_PATIENT, () -> triage.peek());
+    }
+
+    /**
+     * Assigns the most urgent waiting patient to a professional of the given specialization.
+     * If no professional can take the patient, they stay in the queue in the same position.
+     *
+     * @param specialization The required specialization of the professional.
+     * @return The fiscal code of the assigned patient.
+     * @throws EmergencyException If nobody is waiting, or if no professional with the required specialization is available.
+     */
+    public String assignNextPatient(String specialization) throws EmergencyException {
+        return timed(Operation.ASSIGN_NEXT_PATIENT, () -> {
+            updating.lock();
+            try {
+                Patient patient = triage.poll();
+                if (patient == null)
+                    throw new EmergencyException("No patients waiting!");
+                try {
+                    assign(patient.getFiscalCode(), specialization);
+                } catch (EmergencyException e) {
+                    synchronized (patient) {
+                        if (patient.getStatus() == PatientStatus.ADMITTED && !assignedPatients.containsKey(patient.getFiscalCode()))
+                            triage.add(patient);
+                    }
+                    throw e;
+                }
+                return patient.getFiscalCode();
+            } finally {
+                updating.unlock();
+            }
+        });
+    }
+
+    private static String surnameKey(String surname) {
+        return surname.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Patient> copyOf(List<Patient> bucket) {
+        synchronized (bucket) {
+            return new ArrayList<>(bucket);
+        }
     }
 
     /**
@@ -229,43 +1227,72 @@ public class EmergencyApp {
      *         Returns an empty collection if no match is found.
      */    
     public List<Patient> getPatient(String identifier) throws EmergencyException {
-        List<Patient> temp = patients.entrySet().stream()
-                                .filter(entry -> entry.getKey().equals(identifier) || 
-                                        entry.getValue().getSurname().equals(identifier))
-                                .map(Map.Entry::getValue)
-                                .toList();
-        if (temp.isEmpty())
-            return new ArrayList<>(); // changed it to return empty list from throwing EmergencyException
-        return temp;
+        return timed(Operation.GET_PATIENT, () -> {
+            List<Patient> temp = new ArrayList<>();
+            Patient byFiscalCode = patients.get(identifier);
+            if (byFiscalCode != null)
+                temp.add(byFiscalCode);
+            // the surname bucket is case-insensitive, the match is not
+            for (Patient p : copyOf(patientsBySurname.getOrDefault(surnameKey(identifier), List.of())))
+                if (p.getSurname().equals(identifier) && p != byFiscalCode)
+                    temp.add(p);
+            return temp; // changed it to return empty list from throwing EmergencyException
+        });
+    }
+
+    /**
+     * Retrieves the patients whose surname starts with the given prefix, ignoring case.
+     *
+     * @param prefix The beginning of the surname.
+     * @return The matching patients ordered by surname, or an empty list if none matches.
+     */
+    public List<Patient> getPatientsBySurnamePrefix(String prefix) {
+        return timed(Operation.GET_PATIENTS_BY_SURNAME_PREFIX, () -> {
+            String from = surnameKey(prefix);
+            return patientsBySurname.subMap(from, true, from + Character.MAX_VALUE, false).values().stream()
+                            .flatMap(bucket -> copyOf(bucket).stream())
+                            .toList();
+        });
     }
 
     /**
      * Retrieves the fiscal codes of patients accepted on a specific date, 
-     * sorted by acceptance time in descending order.
+     * sorted by surname and name.
      *
      * @param date The date of acceptance to filter the patients by, expected in the format "yyyy-MM-dd".
-     * @return A list of patient fiscal codes who were accepted on the given date, sorted from the most recent.
+     * @return A list of patient fiscal codes who were accepted on the given date, sorted by surname and name.
      *         Returns an empty list if no patients were accepted on that date.
      */
     public List<String> getPatientsByDate(String date) {
-        List<String> temp = patients.values().stream()
-                                .filter(p -> p.getDateAccepted().equals(LocalDate.parse(date)))
-                                .sorted((p1, p2) -> {
-                                    if (p1.getSurname().equals(p1.getSurname())) {
-                                        return p1.getName().compareTo(p2.getName());
-                                    } else {
-                                        return p1.getSurname().compareTo(p2.getSurname());
-                                    }
-                                })
-                                .map(Patient::getFiscalCode)
-                                .collect(Collectors.toList());
-        if (temp.isEmpty())
-            return new ArrayList<String>();
-        return temp;
+        return timed(Operation.GET_PATIENTS_BY_DATE, () -> {
+            return copyOf(patientsByDate.getOrDefault(LocalDate.parse(date), List.of())).stream()
+                                    .map(Patient::getFiscalCode)
+                                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Retrieves the fiscal codes of patients accepted within a range of dates, both included.
+     * The patients are sorted by date of acceptance, then by surname and name.
+     *
+     * @param from The first date of the range, expected in the format "yyyy-MM-dd".
+     * @param to The last date of the range, expected in the format "yyyy-MM-dd".
+     * @return A list of patient fiscal codes who were accepted within the range.
+     *         Returns an empty list if no patients were accepted in that range.
+     */
+    public List<String> getPatientsByDateRange(String from, String to) {
+        return timed(Operation.GET_PATIENTS_BY_DATE_RANGE, () -> {
+            return patientsByDate.subMap(LocalDate.parse(from), true, LocalDate.parse(to), true).values().stream()
+                                    .flatMap(bucket -> copyOf(bucket).stream())
+                                    .map(Patient::getFiscalCode)
+                                    .collect(Collectors.toList());
+        });
     }
 
     /**
      * Assigns a patient to a professional based on the required specialization and checks availability during the request period.
+     * Among the professionals on duty on the day of admission, the one with the lowest caseload is chosen,
+     * the first in order of ID if several have the same caseload.
      *
      * @param fiscalCode The fiscal code of the patient.
      * @param specialization The required specialization of the professional.
@@ -273,30 +1300,282 @@ public class EmergencyApp {
      * @throws EmergencyException If the patient does not exist, if no professionals with the required specialization are found, or if none are available during the period of the request.
      */
     public String assignPatientToProfessional(String fiscalCode, String specialization) throws EmergencyException {
+        return timed(Operation.ASSIGN_PATIENT_TO_PROFESSIONAL, () -> assign(fiscalCode, specialization));
+    }
+
+    private String assign(String fiscalCode, String specialization) throws EmergencyException {
         if (!patients.containsKey(fiscalCode))
             throw new EmergencyException("No patient found with given fiscal code!");
         Patient patient = patients.get(fiscalCode);
-        if (!specialization.contains(specialization))
+        ShiftIndex shifts = specializations.get(specialization);
+        if (shifts == null || shifts.isEmpty())
             throw new EmergencyException("No professionals found with given specialization!");
-        List<String> temp = professionals.values().stream()
-                                .filter(p -> p.getSpecialization().equals(specialization))
-                                .filter(p -> p.getStart().compareTo(patient.getDateAccepted()) <= 0 ||
-                                            p.getEnd().compareTo(patient.getDateAccepted()) >= 0)
-                                .sorted((p1, p2) -> p1.getId().compareTo(p2.getId()))
-                                .map(Professional::getId)
-                                .collect(Collectors.toList());
-        if (temp.isEmpty())
-            throw new EmergencyException();
-        assignedPatients.put(patient, professionals.get(temp.get(0)));
-        return temp.get(0);
-    }
-
-    int reportId = 1;
+        updating.lock();
+        try {
+            Event event = assign(patient, shifts);
+            commit(event.position);
+            return event.target;
+        } finally {
+            updating.unlock();
+        }
+    }
+
+    /**
+     * Assigns a patient to the least-loaded professional on duty on the day of admission;
+     * the caller holds the read lock, and commits the logged assignment.
+     *
+     * @return The logged and published assignment.
+     * @throws EmergencyException If no professional is on duty that day.
+     */
+    private Event assign(Patient patient, ShiftIndex shifts) throws EmergencyException {
+        String fiscalCode = patient.getFiscalCode();
+        synchronized (patient) {
+            boolean discharged = patient.getStatus() == PatientStatus.DISCHARGED;
+            Professional previous = assignedPatients.get(fiscalCode);
+            // a reassigned patient leaves the previous caseload before the choice
+            if (previous != null && !discharged)
+                charge(previous, -1);
+            // least-loaded professional on duty on the day of admission, first in order of ID on ties
+            Professional selected = shifts.assign(patient.acceptedDay);
+            if (selected == null) {
+                if (previous != null && !discharged)
+                    charge(previous, 1);
+                throw new EmergencyException("No professionals available on the date of admission!");
+            }
+            Event event = Event.assigned(fiscalCode, selected.getId());
+            record(event);
+            setAssignment(patient, previous, selected, discharged);
+            publish(event);
+            return event;
+        }
+    }
+
+    /**
+     * Assigns a batch of patients to professionals, each like {@link #assignPatientToProfessional(String, String)}.
+     * Patients are processed grouped by specialization, so that each specialization is looked up once,
+     * and the batch is logged with a single wait for the disk.
+     *
+     * @param assignments The required specialization for each fiscal code.
+     * @return The ID of the assigned professional for each fiscal code, and the errors of the
+     *         patients that could not be assigned, in order of processing.
+     */
+    public BatchResult<String> assignPatients(Map<String, String> assignments) {
+        return timed(Operation.ASSIGN_PATIENTS, () -> {
+            BatchResult<String> result = new BatchResult<>();
+            Map<String, List<String>> bySpecialization = new LinkedHashMap<>();
+            assignments.forEach((fiscalCode, specialization) ->
+                bySpecialization.computeIfAbsent(specialization, k -> new ArrayList<>()).add(fiscalCode));
+            long position = -1;
+            updating.lock();
+            try {
+                for (Map.Entry<String, List<String>> group : bySpecialization.entrySet()) {
+                    ShiftIndex shifts = specializations.get(group.getKey());
+                    boolean staffed = shifts != null && !shifts.isEmpty();
+                    for (String fiscalCode : group.getValue()) {
+                        Patient patient = patients.get(fiscalCode);
+                        if (patient == null) {
+                            result.fail(fiscalCode, "No patient found with given fiscal code!");
+                        } else if (!staffed) {
+                            result.fail(fiscalCode, "No professionals found with given specialization!");
+                        } else {
+                            try {
+                                Event event = assign(patient, shifts);
+                                position = Math.max(position, event.position);
+                                result.succeed(fiscalCode, event.target);
+                            } catch (EmergencyException e) {
+                                result.fail(fiscalCode, e.getMessage());
+                            }
+                        }
+                    }
+                }
+                commit(position);
+            } finally {
+                updating.unlock();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Records the assignment of a patient, already charged to the selected professional;
+     * the caller holds the patient's monitor.
+     */
+    private void setAssignment(Patient patient, Professional previous, Professional selected, boolean discharged) {
+        assignedPatients.put(patient.getFiscalCode(), selected);
+        triage.remove(patient);
+        if (discharged) {
+            // a discharged patient weighs on nobody's caseload
+            charge(selected, -1);
+            if (previous != null)
+                dischargedCounter(previous).decrementAndGet();
+            dischargedCounter(selected).incrementAndGet();
+        }
+        updateRow(patient);
+    }
+
+    private void charge(Professional professional, int delta) {
+        ShiftIndex shifts = specializations.get(professional.getSpecialization());
+        if (shifts != null)
+            shifts.charge(professional.getId(), delta);
+    }
+
+    /**
+     * Returns the caseload of a professional: the patients assigned to them and not yet discharged.
+     *
+     * @param id The ID of the professional.
+     * @return The number of patients the professional is in charge of.
+     * @throws EmergencyException If no professional is found.
+     */
+    public int getCaseload(String id) throws EmergencyException {
+        return timedInt(Operation.GET_CASELOAD, () -> {
+            Professional professional = professionals.get(id);
+            if (professional == null)
+                throw new EmergencyException("Professional not found!");
+            return specializations.get(professional.getSpecialization()).caseload(id);
+        });
+    }
+
+    /**
+     * Saves the report of a visit. With a report log, the report is on disk when the method returns.
+     *
+     * @param professionalId The ID of the professional writing the report.
+     * @param fiscalCode The fiscal code of the patient.
+     * @param date The date of the visit; reports dated other than "yyyy-MM-dd" are saved, but not found
+     *             by date, and come before the dated ones of their patient and professional.
+     * @param description The outcome of the visit.
+     * @return The saved report, numbered in order of saving from 1.
+     * @throws EmergencyException If the professional does not exist.
+     * @throws UncheckedIOException If the report log cannot be written.
+     */
     public Report saveReport(String professionalId, String fiscalCode, String date, String description) throws EmergencyException {
-        if (!professionals.containsKey(professionalId))
-            throw new EmergencyException();
-        reports.put(String.valueOf(reportId), new Report(String.valueOf(reportId), professionalId, fiscalCode, date, description));
-        return reports.get(String.valueOf(reportId++));
+        return timed(Operation.SAVE_REPORT, () -> {
+            if (!professionals.containsKey(professionalId))
+                throw new EmergencyException();
+            Report report;
+            updating.lock();
+            try {
+                report = reports.append(professionalId, fiscalCode, date, description);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                updating.unlock();
+            }
+            // a numbered report is indexed even if forcing it fails, or the search index
+            // would wait forever for the missing number
+            int id = Integer.parseInt(report.getId());
+            indexReport(report);
+            try {
+                reports.commit(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            publish(Event.reportSaved(fiscalCode, professionalId, id));
+            return report;
+        });
+    }
+
+    /**
+     * Retrieves a page of the reports about a patient, in order of date.
+     *
+     * @param fiscalCode The fiscal code of the patient.
+     * @param offset The number of reports to skip.
+     * @param limit The maximum number of reports to return.
+     * @return The reports, oldest first; reports of the same day are in order of saving.
+     */
+    public List<Report> getReportsByPatient(String fiscalCode, int offset, int limit) {
+        return timed(Operation.GET_REPORTS_BY_PATIENT, () -> loadReports(reportIndex.byPatient(fiscalCode, offset, limit)));
+    }
+
+    /**
+     * Retrieves a page of the reports written by a professional, in order of date.
+     *
+     * @param professionalId The ID of the professional.
+     * @param offset The number of reports to skip.
+     * @param limit The maximum number of reports to return.
+     * @return The reports, oldest first; reports of the same day are in order of saving.
+     */
+    public List<Report> getReportsByProfessional(String professionalId, int offset, int limit) {
+        return timed(Operation.GET_REPORTS_BY_PROFESSIONAL, () -> loadReports(reportIndex.byProfessional(professionalId, offset, limit)));
+    }
+
+    /**
+     * Retrieves a page of the reports of visits within a range of dates, both included, in order of date.
+     *
+     * @param from The first date of the range (format "yyyy-MM-dd").
+     * @param to The last date of the range (format "yyyy-MM-dd").
+     * @param offset The number of reports to skip.
+     * @param limit The maximum number of reports to return.
+     * @return The reports, oldest first; reports of the same day are in order of saving.
+     */
+    public List<Report> getReportsByDate(String from, String to, int offset, int limit) {
+        return timed(Operation.GET_REPORTS_BY_DATE, () -> loadReports(reportIndex.byDate(LocalDate.parse(from), LocalDate.parse(to), offset, limit)));
+    }
+
+    private void indexReport(Report report) {
+        int id = Integer.parseInt(report.getId());
+        try {
+            reportIndex.add(id, report.getProfessionalId(), report.getFiscalCode(), LocalDate.parse(report.getDate()));
+        } catch (DateTimeException e) {
+            // not in the format "yyyy-MM-dd", cannot be found by date
+            reportIndex.add(id, report.getProfessionalId(), report.getFiscalCode(), null);
+        }
+        reportSearch.add(id, report.getDescription());
+    }
+
+    /**
+     * Searches the reports by the words of their description, ignoring case.
+     * Words are sequences of letters and digits; single characters are ignored.
+     *
+     * @param keywords The words to look for, e.g. "fracture allergy".
+     * @param matchAll True to find the reports containing every word, false for those containing any of them.
+     * @param professionalId The ID of the professional who wrote the reports, or null for any professional.
+     * @param from The first date of the visits (format "yyyy-MM-dd"), or null for no lower bound.
+     * @param to The last date of the visits (format "yyyy-MM-dd"), or null for no upper bound.
+     * @param limit The maximum number of reports to return.
+     * @return The matching reports, in order of saving.
+     */
+    public List<Report> searchReports(String keywords, boolean matchAll, String professionalId, String from, String to, int limit) {
+        return timed(Operation.SEARCH_REPORTS, () -> {
+            int[] ids = reportSearch.search(ReportSearchIndex.words(keywords), matchAll);
+            ids = reportIndex.filter(ids, professionalId, from == null ? null : LocalDate.parse(from), to == null ? null : LocalDate.parse(to));
+            List<Integer> page = new ArrayList<>();
+            for (int i = 0; i < ids.length && i < limit; i++)
+                page.add(ids[i]);
+            return loadReports(page);
+        });
+    }
+
+    private List<Report> loadReports(List<Integer> ids) {
+        List<Report> temp = new ArrayList<>(ids.size());
+        try {
+            for (int id : ids)
+                temp.add(reports.get(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return temp;
+    }
+
+    /**
+     * Retrieves a saved report.
+     *
+     * @param id The number of the report.
+     * @return The report.
+     * @throws EmergencyException If there is no report with that number.
+     * @throws UncheckedIOException If the report log cannot be read.
+     */
+    public Report getReport(int id) throws EmergencyException {
+        return timed(Operation.GET_REPORT, () -> {
+            Report report;
+            try {
+                report = reports.get(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (report == null)
+                throw new EmergencyException("Report not found!");
+            return report;
+        });
     }
 
     /**
@@ -307,23 +1586,104 @@ public class EmergencyApp {
      * @throws EmergencyException If the patient does not exist or if the department does not exist.
      */
     public void dischargeOrHospitalize(String fiscalCode, String departmentName) throws EmergencyException {
-        if (!patients.containsKey(fiscalCode))
-            throw new EmergencyException();
-        if (!departments.containsKey(departmentName))
-            throw new EmergencyException();
-        if (departments.get(departmentName).getNumPatients() > 0) {
-            patients.get(fiscalCode).setStatus(PatientStatus.HOSPITALIZED);
-            departments.get(departmentName).decrementNumPatients();
-            depPatients.put(departments.get(departmentName), patients.get(fiscalCode));
-        } else {
-            if (depPatients.containsKey(departments.get(departmentName)))
-                if (depPatients.get(departments.get(departmentName)).getStatus() == PatientStatus.HOSPITALIZED)
-                    departments.get(departmentName).incementNumPatients();
+        timedVoid(Operation.DISCHARGE_OR_HOSPITALIZE, () -> {
+            Patient patient = patients.get(fiscalCode);
+            if (patient == null)
+                throw new EmergencyException();
+            Department department = departments.get(departmentName);
+            if (department == null)
+                throw new EmergencyException();
+            updating.lock();
+            try {
+                long position;
+                synchronized (patient) {
+                    if (patient.department == department)
+                        return; // already holding a bed there
+                    Event event;
+                    if (department.admit(fiscalCode)) {
+                        event = Event.hospitalized(fiscalCode, departmentName);
+                        position = record(event);
+                        leaveDepartment(patient);
+                        patient.department = department;
+                        changeStatus(patient, PatientStatus.HOSPITALIZED);
+                    } else {
+                        event = Event.discharged(fiscalCode);
+                        position = record(event);
+                        leaveDepartment(patient);
+                        changeStatus(patient, PatientStatus.DISCHARGED);
+                    }
+                    publish(event);
+                }
+                commit(position);
+            } finally {
+                updating.unlock();
+            }
+        });
+    }
 
-            patients.get(fiscalCode).setStatus(PatientStatus.DISCHARGED);
+    /**
+     * Releases the bed held by a patient, if any.
+     *
+     * @param patient The patient leaving their department; the caller holds its monitor.
+     */
+    private void leaveDepartment(Patient patient) {
+        if (patient.department != null) {
+            patient.department.release(patient.getFiscalCode());
+            patient.department = null;
         }
     }
 
+    /**
+     * Moves a patient to a new status, keeping the per-status counters in step.
+     * Every status transition goes through here.
+     *
+     * @param patient The patient whose status changes.
+     * @param status The new status.
+     */
+    private void changeStatus(Patient patient, PatientStatus status) {
+        synchronized (patient) {
+            PatientStatus old = patient.getStatus();
+            if (old == status) {
+                updateRow(patient); // the department may have changed
+                return;
+            }
+            patient.setStatus(status);
+            if (status != PatientStatus.ADMITTED)
+                triage.remove(patient);
+            statusCounts.get(old).decrementAndGet();
+            statusCounts.get(status).incrementAndGet();
+            Professional assigned = assignedPatients.get(patient.getFiscalCode());
+            if (assigned != null) {
+                if (old == PatientStatus.DISCHARGED) {
+                    dischargedCounter(assigned).decrementAndGet();
+                    charge(assigned, 1);
+                } else if (status == PatientStatus.DISCHARGED) {
+                    dischargedCounter(assigned).incrementAndGet();
+                    charge(assigned, -1);
+                }
+            }
+            updateRow(patient);
+        }
+    }
+
+    /**
+     * Copies the status, the assignment and the department of a patient to the column store, if enabled.
+     *
+     * @param patient The changed patient; the caller holds its monitor.
+     */
+    private void updateRow(Patient patient) {
+        PatientColumns store = columns;
+        if (store == null || patient.row < 0)
+            return;
+        Professional assigned = assignedPatients.get(patient.getFiscalCode());
+        store.set(patient.row, patient.status, assigned == null ? null : assigned.getSpecialization(),
+                  patient.department == null ? null : patient.department.getName());
+    }
+
+    private AtomicInteger dischargedCounter(Professional professional) {
+        return dischargedBySpecialization.computeIfAbsent(professional.getSpecialization(), k -> new AtomicInteger());
+    }
+
     /**
      * Checks if a patient is currently hospitalized in any department.
      *
@@ -332,12 +1692,14 @@ public class EmergencyApp {
      * @throws EmergencyException If no patient is found with the given fiscal code.
      */
     public int verifyPatient(String fiscalCode) throws EmergencyException{
-        if (!patients.containsKey(fiscalCode))
-            throw new EmergencyException();
-        if (patients.get(fiscalCode).getStatus() == PatientStatus.HOSPITALIZED)
-            return 0;
-        else
-            return -1;
+        return timedInt(Operation.VERIFY_PATIENT, () -> {
+            if (!patients.containsKey(fiscalCode))
+                throw new EmergencyException();
+            if (patients.get(fiscalCode).getStatus() == PatientStatus.HOSPITALIZED)
+                return 0;
+            else
+                return -1;
+        });
     }
 
     /**
@@ -346,9 +1708,7 @@ public class EmergencyApp {
      * @return The total number of patients in the system.
      */    
     public int getNumberOfPatients() {
-        return (int) patients.values().stream()
-                        .filter(p -> p.getStatus() == PatientStatus.ADMITTED)
-                        .count();
+        return timedInt(Operation.GET_NUMBER_OF_PATIENTS, () -> statusCounts.get(PatientStatus.ADMITTED).get());
     }
 
     /**
@@ -358,17 +1718,45 @@ public class EmergencyApp {
      * @return The count of patients admitted on that date.
      */
     public int getNumberOfPatientsByDate(String date) {
-        LocalDate d = LocalDate.parse(date);
-        return (int) patients.values().stream()
-                        .filter(p -> p.getDateAccepted().equals(d))
-                        .count();
+        return timedInt(Operation.GET_NUMBER_OF_PATIENTS_BY_DATE, () -> patientsByDate.getOrDefault(LocalDate.parse(date), List.of()).size());
+    }
+
+    /**
+     * Returns the number of patients admitted within a range of dates, both included.
+     *
+     * @param from The first date of the range (format "yyyy-MM-dd").
+     * @param to The last date of the range (format "yyyy-MM-dd").
+     * @return The count of patients admitted within the range.
+     */
+    public int getNumberOfPatientsByDateRange(String from, String to) {
+        return timedInt(Operation.GET_NUMBER_OF_PATIENTS_BY_DATE_RANGE, () -> {
+            return patientsByDate.subMap(LocalDate.parse(from), true, LocalDate.parse(to), true).values().stream()
+                            .mapToInt(List::size)
+                            .sum();
+        });
     }
 
     public int getNumberOfPatientsHospitalizedByDepartment(String departmentName) throws EmergencyException {
-        if (!departments.containsKey(departmentName))
-            throw new EmergencyException();
-        Department temp = departments.get(departmentName);
-        return temp.getMaxPatients()-temp.getNumPatients();
+        return timedInt(Operation.GET_NUMBER_OF_PATIENTS_HOSPITALIZED_BY_DEPARTMENT, () -> {
+            if (!departments.containsKey(departmentName))
+                throw new EmergencyException();
+            return departments.get(departmentName).getPatients().size();
+        });
+    }
+
+    /**
+     * Retrieves the patients currently hospitalized in a department.
+     *
+     * @param departmentName The name of the department.
+     * @return The fiscal codes of the hospitalized patients, in no particular order.
+     * @throws EmergencyException If the department does not exist.
+     */
+    public List<String> getHospitalizedPatients(String departmentName) throws EmergencyException {
+        return timed(Operation.GET_HOSPITALIZED_PATIENTS, () -> {
+            if (!departments.containsKey(departmentName))
+                throw new EmergencyException();
+            return new ArrayList<>(departments.get(departmentName).getPatients());
+        });
     }
 
     /**
@@ -377,9 +1765,7 @@ public class EmergencyApp {
      * @return The count of discharged patients.
      */
     public int getNumberOfPatientsDischarged() {
-        return (int) patients.values().stream()
-                        .filter(p -> p.getStatus() == PatientStatus.DISCHARGED)
-                        .count();
+        return timedInt(Operation.GET_NUMBER_OF_PATIENTS_DISCHARGED, () -> statusCounts.get(PatientStatus.DISCHARGED).get());
     }
 
     /**
@@ -389,11 +1775,134 @@ public class EmergencyApp {
      * @return The count of discharged patients treated by professionals of the given specialization.
      */
     public int getNumberOfPatientsAssignedToProfessionalDischarged(String specialization) {
-        return (int) patients.values().stream()
-                        .filter(p -> assignedPatients.containsKey(p))
-                        .filter(p -> assignedPatients.get(p).getSpecialization().equals(specialization))
-                        .filter(p -> p.getStatus().equals(PatientStatus.DISCHARGED))
-                        .count();
+        return timedInt(Operation.GET_NUMBER_OF_PATIENTS_ASSIGNED_TO_PROFESSIONAL_DISCHARGED, () -> {
+            AtomicInteger count = dischargedBySpecialization.get(specialization);
+            return count == null ? 0 : count.get();
+        });
+    }
+
+    /**
+     * Returns the number of discharged patients for every specialization of the professionals they were assigned to.
+     *
+     * @return A map from specialization to the count of discharged patients treated by professionals of that specialization.
+     */
+    public Map<String, Integer> getNumberOfPatientsAssignedToProfessionalDischarged() {
+        return timed(Operation.GET_NUMBER_OF_PATIENTS_ASSIGNED_TO_PROFESSIONAL_DISCHARGED, () -> {
+            Map<String, Integer> temp = new HashMap<>();
+            dischargedBySpecialization.forEach((specialization, count) -> temp.put(specialization, count.get()));
+            return temp;
+        });
+    }
+
+    /**
+     * Keeps the attributes counted by {@link #countPatients(PatientStatus, String, String, String, String)}
+     * in a column store off the heap, so that counts scan a few bytes per patient instead of the patients.
+     * The store costs 13 bytes per patient outside the heap; enabling it again has no effect.
+     */
+    public void enableColumnarStore() {
+        timedVoid(Operation.ENABLE_COLUMNAR_STORE, () -> {
+            stateLock.writeLock().lock();
+            try {
+                if (columns != null)
+                    return;
+                columns = new PatientColumns();
+                for (Patient patient : patients.values()) {
+                    synchronized (patient) {
+                        patient.row = columns.add(patient);
+                        updateRow(patient);
+                    }
+                }
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Counts the patients matching all the given conditions; a null condition matches any patient.
+     * Scans the column store if enabled, the patients otherwise.
+     *
+     * @param status The status of the patients.
+     * @param from The first day of acceptance (format "yyyy-MM-dd").
+     * @param to The last day of acceptance (format "yyyy-MM-dd").
+     * @param specialization The specialization of the professional the patients are assigned to.
+     * @param department The department where the patients are hospitalized.
+     * @return The number of matching patients.
+     */
+    public int countPatients(PatientStatus status, String from, String to, String specialization, String department) {
+        return timedInt(Operation.COUNT_PATIENTS, () -> {
+            long first = from == null ? Long.MIN_VALUE : LocalDate.parse(from).toEpochDay();
+            long last = to == null ? Long.MAX_VALUE : LocalDate.parse(to).toEpochDay();
+            PatientColumns store = columns;
+            if (store != null)
+                return store.count(status, first, last, specialization, department);
+            int count = 0;
+            for (Patient patient : patients.values()) {
+                synchronized (patient) {
+                    if (status != null && patient.status != status)
+                        continue;
+                    if (patient.acceptedDay < first || patient.acceptedDay > last)
+                        continue;
+                    Professional assigned = specialization == null ? null : assignedPatients.get(patient.getFiscalCode());
+                    if (specialization != null && (assigned == null || !assigned.getSpecialization().equals(specialization)))
+                        continue;
+                    if (department != null && (patient.department == null || !patient.department.getName().equals(department)))
+                        continue;
+                }
+                count++;
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Returns the number of patients registered within a recent window of time, e.g. the last 15 minutes.
+     * Windows up to an hour are counted by the minute, longer ones by the hour; the current minute
+     * or hour is always included.
+     *
+     * @param window The length of the window, from one minute to 24 hours.
+     * @return The number of patients registered within the window.
+     * @throws IllegalArgumentException If the window is out of range.
+     */
+    public int getAdmissions(Duration window) {
+        return timedInt(Operation.GET_ADMISSIONS, () -> activity.admissions(clock.millis(), RollingCounter.check(window)));
+    }
+
+    /**
+     * Returns the number of patients registered within a recent window of time for every reason,
+     * as {@link #getAdmissions(Duration)}.
+     *
+     * @param window The length of the window, from one minute to 24 hours.
+     * @return A map from reason to the number of patients registered within the window, without zeros.
+     * @throws IllegalArgumentException If the window is out of range.
+     */
+    public Map<String, Integer> getAdmissionsByReason(Duration window) {
+        return timed(Operation.GET_ADMISSIONS_BY_REASON, () -> activity.admissionsByReason(clock.millis(), RollingCounter.check(window)));
+    }
+
+    /**
+     * Returns the number of assignments within a recent window of time for every specialization,
+     * as {@link #getAdmissions(Duration)}.
+     *
+     * @param window The length of the window, from one minute to 24 hours.
+     * @return A map from specialization to the number of patients assigned within the window, without zeros.
+     * @throws IllegalArgumentException If the window is out of range.
+     */
+    public Map<String, Integer> getAssignmentsBySpecialization(Duration window) {
+        return timed(Operation.GET_ASSIGNMENTS_BY_SPECIALIZATION, () -> activity.assignmentsBySpecialization(clock.millis(), RollingCounter.check(window)));
+    }
+
+    /**
+     * Returns the number of patients hospitalized or discharged within a recent window of time,
+     * as {@link #getAdmissions(Duration)}.
+     *
+     * @param status The status the patients moved to.
+     * @param window The length of the window, from one minute to 24 hours.
+     * @return The number of moves to the status within the window.
+     * @throws IllegalArgumentException If the window is out of range.
+     */
+    public int getStatusChanges(PatientStatus status, Duration window) {
+        return timedInt(Operation.GET_STATUS_CHANGES, () -> activity.statusChanges(status, clock.millis(), RollingCounter.check(window)));
     }
 
 }
@@ -0,0 +1,25 @@
+package it.polito.emergency;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The management interface of {@link DefaultMetricsRegistry}, as seen by JMX clients such as JConsole.
+ */
+public interface EmergencyMetricsMXBean {
+
+    /**
+     * @return The statistics of every operation called at least once since the last reset.
+     */
+    List<OperationStats> getOperations();
+
+    /**
+     * @return The number of failures by operation and cause, keyed "OPERATION: cause".
+     */
+    Map<String, Long> getErrors();
+
+    /**
+     * Clears every measurement.
+     */
+    void reset();
+}
@@ -0,0 +1,239 @@
+package it.polito.emergency;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * A change of the state of the emergency room, as recorded in the event log and
+ * delivered to subscribers.
+ * Events carry outcomes rather than requests: an assignment names the chosen professional
+ * and a discharge or hospitalization is the one that happened, so replaying the events
+ * in order rebuilds the same state without making the same choices again.
+ */
+public class Event {
+
+    public enum Type {
+        PROFESSIONAL_ADDED,
+        DEPARTMENT_ADDED,
+        PATIENT_ADDED,
+        SEVERITY_CHANGED,
+        ASSIGNED,
+        HOSPITALIZED,
+        DISCHARGED,
+        /** A report was saved; not logged, since reports have their own log. */
+        REPORT_SAVED,
+        /** Events were dropped, or the state was restored: views must be rebuilt from the emergency room. */
+        RESYNC
+    }
+
+    final Type type;
+    final String key;          // fiscal code, or ID of the added professional, or name of the added department
+    final String target;       // assigned professional, department of the hospitalization, or author of the report
+    final int value;           // severity, maximum number of patients of the added department, or number of the report
+    final Professional professional;
+    final Patient patient;
+    long sequence;             // set when the event is logged
+    long position = -1;        // in the current segment of the event log, -1 if not logged
+
+    private Event(Type type, String key, String target, int value, Professional professional, Patient patient) {
+        this.type = type;
+        this.key = key;
+        this.target = target;
+        this.value = value;
+        this.professional = professional;
+        this.patient = patient;
+    }
+
+    static Event professionalAdded(Professional professional) {
+        return new Event(Type.PROFESSIONAL_ADDED, professional.getId(), null, 0, professional, null);
+    }
+
+    static Event departmentAdded(String name, int maxPatients) {
+        return new Event(Type.DEPARTMENT_ADDED, name, null, maxPatients, null, null);
+    }
+
+    static Event patientAdded(Patient patient) {
+        return new Event(Type.PATIENT_ADDED, patient.getFiscalCode(), null, patient.severity, null, patient);
+    }
+
+    static Event severityChanged(String fiscalCode, int severity) {
+        return new Event(Type.SEVERITY_CHANGED, fiscalCode, null, severity, null, null);
+    }
+
+    static Event assigned(String fiscalCode, String professionalId) {
+        return new Event(Type.ASSIGNED, fiscalCode, professionalId, 0, null, null);
+    }
+
+    static Event hospitalized(String fiscalCode, String department) {
+        return new Event(Type.HOSPITALIZED, fiscalCode, department, 0, null, null);
+    }
+
+    static Event discharged(String fiscalCode) {
+        return new Event(Type.DISCHARGED, fiscalCode, null, 0, null, null);
+    }
+
+    static Event reportSaved(String fiscalCode, String professionalId, int reportId) {
+        return new Event(Type.REPORT_SAVED, fiscalCode, professionalId, reportId, null, null);
+    }
+
+    static Event resync() {
+        return new Event(Type.RESYNC, null, null, 0, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The number of the event in the event log, or 0 if the changes are not logged.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The fiscal code of the patient concerned, or null for a change of the staff or of the departments.
+     */
+    public String getFiscalCode() {
+        return type == Type.PROFESSIONAL_ADDED || type == Type.DEPARTMENT_ADDED ? null : key;
+    }
+
+    /**
+     * @return The added professional, the assigned one or the author of a report; null for other events.
+     */
+    public String getProfessionalId() {
+        return switch (type) {
+            case PROFESSIONAL_ADDED -> key;
+            case ASSIGNED, REPORT_SAVED -> target;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return The added department or the one of a hospitalization; null for other events.
+     */
+    public String getDepartment() {
+        return switch (type) {
+            case DEPARTMENT_ADDED -> key;
+            case HOSPITALIZED -> target;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return The severity of an added patient or the new one, 0 for other events.
+     */
+    public int getSeverity() {
+        return type == Type.PATIENT_ADDED || type == Type.SEVERITY_CHANGED ? value : 0;
+    }
+
+    /**
+     * @return The number of a saved report, 0 for other events.
+     */
+    public int getReportId() {
+        return type == Type.REPORT_SAVED ? value : 0;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + (key == null ? "" : key) + (target == null ? "" : ", " + target) + ")";
+    }
+
+    /**
+     * Encodes the event as the sequence number, the type and the fields used by that type;
+     * strings are length-prefixed UTF-8 sequences, with -1 for null, and dates are epoch days.
+     */
+    ByteBuffer encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.putLong(sequence).put((byte) type.ordinal());
+        switch (type) {
+            case PROFESSIONAL_ADDED -> {
+                Professional p = professional;
+                buffer = putStrings(buffer, p.getId(), p.getName(), p.getSurname(), p.getSpecialization(), p.getWorkingHours());
+                buffer = ensure(buffer, 2 * Integer.BYTES);
+                buffer.putInt(p.startDay).putInt(p.endDay);
+            }
+            case DEPARTMENT_ADDED -> {
+                buffer = putStrings(buffer, key);
+                buffer = ensure(buffer, Integer.BYTES);
+                buffer.putInt(value);
+            }
+            case PATIENT_ADDED -> {
+                Patient p = patient;
+                buffer = putStrings(buffer, p.getFiscalCode(), p.getName(), p.getSurname(), p.getReason());
+                buffer = ensure(buffer, 3 * Integer.BYTES + Long.BYTES);
+                buffer.putInt(p.birthDay).putInt(p.acceptedDay)
+                      .putInt(value).putLong(p.arrival);
+            }
+            case SEVERITY_CHANGED -> {
+                buffer = putStrings(buffer, key);
+                buffer = ensure(buffer, Integer.BYTES);
+                buffer.putInt(value);
+            }
+            case ASSIGNED, HOSPITALIZED -> buffer = putStrings(buffer, key, target);
+            case DISCHARGED -> buffer = putStrings(buffer, key);
+        }
+        return buffer.flip();
+    }
+
+    static Event decode(ByteBuffer buffer, Interner strings) {
+        long sequence = buffer.getLong();
+        Type type = Type.values()[buffer.get()];
+        Event event = switch (type) {
+            case PROFESSIONAL_ADDED -> {
+                String id = string(buffer), name = string(buffer), surname = string(buffer);
+                String specialization = string(buffer), workingHours = string(buffer);
+                LocalDate start = LocalDate.ofEpochDay(buffer.getInt());
+                LocalDate end = LocalDate.ofEpochDay(buffer.getInt());
+                yield professionalAdded(new Professional(id, name, surname, specialization, start, end, workingHours, strings));
+            }
+            case DEPARTMENT_ADDED -> departmentAdded(string(buffer), buffer.getInt());
+            case PATIENT_ADDED -> {
+                String fiscalCode = string(buffer), name = string(buffer), surname = string(buffer), reason = string(buffer);
+                LocalDate birth = LocalDate.ofEpochDay(buffer.getInt());
+                LocalDate accepted = LocalDate.ofEpochDay(buffer.getInt());
+                Patient patient = new Patient(fiscalCode, name, surname, birth, reason, accepted, buffer.getInt(), strings);
+                patient.arrival = buffer.getLong();
+                yield patientAdded(patient);
+            }
+            case SEVERITY_CHANGED -> severityChanged(string(buffer), buffer.getInt());
+            case ASSIGNED -> assigned(string(buffer), string(buffer));
+            case HOSPITALIZED -> hospitalized(string(buffer), string(buffer));
+            case DISCHARGED -> discharged(string(buffer));
+            case REPORT_SAVED, RESYNC -> throw new IllegalArgumentException("Not a logged event: " + type);
+        };
+        event.sequence = sequence;
+        return event;
+    }
+
+    private static ByteBuffer putStrings(ByteBuffer buffer, String... strings) {
+        for (String s : strings) {
+            if (s == null) {
+                buffer = ensure(buffer, Integer.BYTES);
+                buffer.putInt(-1);
+                continue;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            buffer = ensure(buffer, Integer.BYTES + b.length);
+            buffer.putInt(b.length).put(b);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed)
+            return buffer;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        return larger.put(buffer.flip());
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        byte[] b = new byte[length];
+        buffer.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package it.polito.emergency;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers the changes of the emergency room to the subscriptions.
+ * Subscribing is rare and publishing frequent, so the subscriptions are kept in a
+ * copy-on-write list that publishers traverse without locking.
+ */
+class EventBus {
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    Subscription subscribe(int capacity, Set<Event.Type> types) {
+        Subscription subscription = new Subscription(this, capacity, types);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    void publish(Event event) {
+        for (Subscription s : subscriptions)
+            s.offer(event);
+    }
+}
@@ -0,0 +1,198 @@
+package it.polito.emergency;
+
+import it.polito.emergency.EmergencyApp.Durability;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.*;
+import java.util.stream.*;
+
+/**
+ * The write-ahead log of the changes of the emergency room.
+ * Events are numbered in order of logging and appended to a segment file named after the
+ * number of its first event. A checkpoint starts a new segment, and the segments older than
+ * the snapshot taken at the checkpoint are deleted once the snapshot is on disk.
+ * How soon an event reaches the disk depends on the {@link Durability} of the log.
+ * Appending is synchronized on the log.
+ */
+class EventLog implements AutoCloseable {
+
+    private static final Pattern SEGMENT = Pattern.compile("events-(\\d+)\\.log");
+    // how often the events of an asynchronous log are forced to disk
+    static final long FLUSH_INTERVAL_MILLIS = 20;
+
+    private final Path directory;
+    private final Durability durability;
+    private AppendLog current;
+    private long first;          // number of the first event of the current segment
+    private long sequence;       // number of the last logged event
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens the log, replaying the logged events in order.
+     *
+     * @param directory The directory of the segments.
+     * @param durability When appended events are forced to disk.
+     * @param after The number of the last event already applied, e.g. by a snapshot; older events are skipped.
+     * @param strings The dictionary of the strings of the replayed records.
+     * @param replay Called with every event to apply, in order.
+     * @throws IOException If the segments cannot be read.
+     */
+    EventLog(Path directory, Durability durability, long after, Interner strings, Consumer<Event> replay) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        sequence = after;
+        for (long start : segments()) {
+            List<Long> positions = new ArrayList<>();
+            try (AppendLog segment = new AppendLog(segment(start), positions::add)) {
+                for (long position : positions) {
+                    Event event = Event.decode(segment.read(position), strings);
+                    if (event.sequence > sequence) {
+                        replay.accept(event);
+                        sequence = event.sequence;
+                    }
+                }
+            }
+        }
+        first = sequence + 1;
+        current = new AppendLog(segment(first), position -> {});
+        if (durability == Durability.ASYNC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "event-log-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(f -> SEGMENT.matcher(f.getFileName().toString()))
+                        .filter(Matcher::matches)
+                        .map(m -> Long.parseLong(m.group(1)))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    private Path segment(long start) {
+        return directory.resolve("events-" + start + ".log");
+    }
+
+    /**
+     * Numbers and appends an event. With per-event durability the event is on disk when the
+     * method returns; with group commit it is once {@link #commit(long)} returns.
+     *
+     * @return The position of the event in the current segment.
+     */
+    synchronized long append(Event event) throws IOException {
+        event.sequence = sequence + 1;
+        long position = current.append(event.encode());
+        sequence = event.sequence;
+        if (durability == Durability.PER_EVENT)
+            current.commit(position);
+        return position;
+    }
+
+    /**
+     * Waits until an event is on disk, sharing the force with the other threads waiting.
+     * The caller makes sure that no checkpoint started since the event was appended.
+     *
+     * @param position The position returned by {@link #append(Event)}.
+     */
+    void commit(long position) throws IOException {
+        if (durability == Durability.GROUP_COMMIT)
+            segment().commit(position);
+    }
+
+    /**
+     * Waits until every event appended so far is on disk. The segments before the current
+     * one were forced when rotated, so checkpoints may have started since the events were
+     * appended; the caller only makes sure that none is starting meanwhile.
+     */
+    void commitAll() throws IOException {
+        if (durability == Durability.GROUP_COMMIT)
+            segment().commit();
+    }
+
+    private synchronized AppendLog segment() {
+        return current;
+    }
+
+    /**
+     * @return The number of the last logged event.
+     */
+    synchronized long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Starts a new segment; the events logged so far are forced to disk.
+     * The caller makes sure that no event is being logged meanwhile.
+     *
+     * @return The number of the last event before the new segment.
+     */
+    synchronized long rotate() throws IOException {
+        if (sequence + 1 == first)
+            return sequence; // the current segment is empty
+        current.close();
+        first = sequence + 1;
+        current = new AppendLog(segment(first), position -> {});
+        return sequence;
+    }
+
+    /**
+     * Deletes the segments whose events are all covered by a snapshot.
+     *
+     * @param upTo The number of the last event in the snapshot.
+     */
+    synchronized void truncate(long upTo) throws IOException {
+        for (long start : segments())
+            if (start <= upTo && start != first)
+                Files.deleteIfExists(segment(start));
+    }
+
+    private void flush() {
+        try {
+            segment().commit();
+        } catch (IOException e) {
+            // retried at the next interval
+        }
+    }
+
+    /**
+     * Forces the last events to disk and closes the log. The flusher of an asynchronous log
+     * finishes its round first: interrupting it while forcing would close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        if (flusher != null) {
+            // not holding the monitor, which the flusher needs to finish
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            synchronized (this) {
+                current.close();
+            }
+        } finally {
+            // restored only now, since forcing on an interrupted thread closes the file
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package it.polito.emergency;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the reports in an append-only log file, so they survive a restart.
+ * Only the position of each report in the file is kept on the heap; a report is
+ * read back from the file when looked up. A saved report is on disk when
+ * {@link #commit} returns, with concurrent saves sharing a single fsync.
+ * <p>
+ * Each record holds the report number followed by the professional ID, the fiscal code,
+ * the date and the description, every string as a length-prefixed UTF-8 sequence.
+ */
+class FileReportStore implements ReportStore {
+
+    private final AppendLog log;
+    // position of report n at index n - 1, guarded by this
+    private long[] positions = new long[1024];
+    private int size;
+
+    FileReportStore(Path file) throws IOException {
+        log = new AppendLog(file, this::addPosition);
+    }
+
+    private synchronized void addPosition(long position) {
+        if (size == positions.length)
+            positions = Arrays.copyOf(positions, size * 2);
+        positions[size++] = position;
+    }
+
+    @Override
+    public synchronized Report append(String professionalId, String fiscalCode, String date, String description) throws IOException {
+        // numbering and appending happen together, so that numbers follow the file order
+        int id = size + 1;
+        Report report = new Report(String.valueOf(id), professionalId, fiscalCode, date, description);
+        addPosition(log.append(encode(id, report)));
+        return report;
+    }
+
+    @Override
+    public void commit(int id) throws IOException {
+        long position;
+        synchronized (this) {
+            position = positions[id - 1];
+        }
+        log.commit(position);
+    }
+
+    @Override
+    public void appendAll(List<Report> reports) throws IOException {
+        long position = -1;
+        synchronized (this) {
+            for (Report r : reports) {
+                int id = size + 1;
+                position = log.append(encode(id, r));
+                addPosition(position);
+            }
+        }
+        // a single fsync for the whole batch
+        if (position >= 0)
+            log.commit(position);
+    }
+
+    @Override
+    public Report get(int id) throws IOException {
+        long position;
+        synchronized (this) {
+            if (id < 1 || id > size)
+                return null;
+            position = positions[id - 1];
+        }
+        return decode(log.read(position));
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static ByteBuffer encode(int id, Report report) {
+        byte[][] fields = {
+            bytes(report.getProfessionalId()), bytes(report.getFiscalCode()),
+            bytes(report.getDate()), bytes(report.getDescription())
+        };
+        int length = Integer.BYTES;
+        for (byte[] f : fields)
+            length += Integer.BYTES + f.length;
+        ByteBuffer buffer = ByteBuffer.allocate(length).putInt(id);
+        for (byte[] f : fields)
+            buffer.putInt(f.length).put(f);
+        return buffer.flip();
+    }
+
+    private static Report decode(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        return new Report(String.valueOf(id), string(buffer), string(buffer), string(buffer), string(buffer));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] b = new byte[buffer.getInt()];
+        buffer.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package it.polito.emergency;
+
+/**
+ * A record of a CSV file that could not be imported.
+ */
+public class ImportError {
+    int line;
+    String message;
+
+    public ImportError(int line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * @return The number of the rejected line, starting from 1 for the header.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ": " + message;
+    }
+}
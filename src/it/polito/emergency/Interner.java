@@ -0,0 +1,46 @@
+package it.polito.emergency;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dictionary of the values shared by many records of an emergency room, such as names,
+ * surnames and specializations, so that equal values are stored once however many records
+ * use them. Free text, such as the reason of a visit, is rarely repeated and is not meant
+ * for it. Each emergency room has its own dictionary, released with it.
+ * The dictionary stops growing at {@link #CAPACITY} distinct values; later new values are
+ * stored as given.
+ */
+final class Interner {
+
+    static final int CAPACITY = 1 << 20;
+
+    /** Stores every value as given, for records built outside an emergency room. */
+    static final Interner NONE = new Interner(0);
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    Interner() {
+        this(CAPACITY);
+    }
+
+    private Interner(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param value A value, possibly null.
+     * @return The stored value equal to the given one, or the given one.
+     */
+    String intern(String value) {
+        if (value == null || capacity == 0)
+            return value;
+        String stored = values.get(value);
+        if (stored != null)
+            return stored;
+        if (values.size() >= capacity)
+            return value;
+        stored = values.putIfAbsent(value, value);
+        return stored == null ? value : stored;
+    }
+}
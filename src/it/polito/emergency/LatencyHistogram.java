@@ -0,0 +1,81 @@
+package it.polito.emergency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A log-linear histogram of durations in nanoseconds, in the manner of HdrHistogram.
+ * Each power of two is split into 16 linear buckets, so a value is recorded with a
+ * relative error below 1/16 over the whole range of a long, in a fixed array of counters.
+ * Recording is a few arithmetic operations and two atomic increments, and never allocates.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) Math.max(value, 0);
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /** @return The lowest value recorded in a bucket. */
+    static long lowest(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long mantissa = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + mantissa) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * @param quantile The quantile, between 0 and 1.
+     * @return The lowest value of the bucket holding the quantile, 0 if nothing was recorded.
+     */
+    long percentile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            n += snapshot[i] = counts.get(i);
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return lowest(i);
+        }
+        return lowest(BUCKETS - 1);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.reset();
+        total.reset();
+    }
+}
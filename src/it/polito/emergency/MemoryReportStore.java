@@ -0,0 +1,32 @@
+package it.polito.emergency;
+
+import java.util.*;
+
+/**
+ * Keeps the reports on the heap, indexed by number; they are lost when the application stops.
+ */
+class MemoryReportStore implements ReportStore {
+
+    private final List<Report> reports = new ArrayList<>();
+
+    @Override
+    public synchronized Report append(String professionalId, String fiscalCode, String date, String description) {
+        Report report = new Report(String.valueOf(reports.size() + 1), professionalId, fiscalCode, date, description);
+        reports.add(report);
+        return report;
+    }
+
+    @Override
+    public synchronized Report get(int id) {
+        return id >= 1 && id <= reports.size() ? reports.get(id - 1) : null;
+    }
+
+    @Override
+    public synchronized int size() {
+        return reports.size();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,38 @@
+package it.polito.emergency;
+
+/**
+ * Receives the measurements of the operations of the emergency room, e.g. to forward
+ * them to a monitoring system. Both methods are called on the thread running the
+ * operation, so they must be fast and thread-safe.
+ *
+ * @see DefaultMetricsRegistry
+ */
+public interface MetricsRegistry {
+
+    /** A registry that drops every measurement. */
+    MetricsRegistry NONE = new MetricsRegistry() {
+        @Override
+        public void record(Operation operation, long nanos) {
+        }
+
+        @Override
+        public void recordError(Operation operation, String cause) {
+        }
+    };
+
+    /**
+     * Records a completed operation, successful or not.
+     *
+     * @param operation The operation.
+     * @param nanos How long it took, in nanoseconds.
+     */
+    void record(Operation operation, long nanos);
+
+    /**
+     * Records a failed operation, in addition to {@link #record(Operation, long)}.
+     *
+     * @param operation The operation.
+     * @param cause The message of the {@link EmergencyException}, or the name of the class of any other exception.
+     */
+    void recordError(Operation operation, String cause);
+}
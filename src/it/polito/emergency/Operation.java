@@ -0,0 +1,54 @@
+package it.polito.emergency;
+
+/**
+ * The operations of the emergency room measured by a {@link MetricsRegistry}.
+ * Overloads of a method are measured as one operation.
+ */
+public enum Operation {
+    ADD_PROFESSIONAL,
+    GET_PROFESSIONAL_BY_ID,
+    GET_PROFESSIONALS,
+    GET_PROFESSIONALS_IN_SERVICE,
+    ADD_DEPARTMENT,
+    GET_DEPARTMENTS,
+    READ_PROFESSIONALS,
+    READ_PROFESSIONALS_PARALLEL,
+    READ_DEPARTMENTS,
+    ADD_PATIENT,
+    ADD_PATIENTS,
+    SET_PATIENT_SEVERITY,
+    GET_TRIAGE_QUEUE,
+    GET_NEXT_PATIENT,
+    ASSIGN_NEXT_PATIENT,
+    GET_PATIENT,
+    GET_PATIENTS_BY_SURNAME_PREFIX,
+    GET_PATIENTS_BY_DATE,
+    GET_PATIENTS_BY_DATE_RANGE,
+    ASSIGN_PATIENT_TO_PROFESSIONAL,
+    ASSIGN_PATIENTS,
+    GET_CASELOAD,
+    SAVE_REPORT,
+    GET_REPORTS_BY_PATIENT,
+    GET_REPORTS_BY_PROFESSIONAL,
+    GET_REPORTS_BY_DATE,
+    SEARCH_REPORTS,
+    GET_REPORT,
+    DISCHARGE_OR_HOSPITALIZE,
+    VERIFY_PATIENT,
+    GET_NUMBER_OF_PATIENTS,
+    GET_NUMBER_OF_PATIENTS_BY_DATE,
+    GET_NUMBER_OF_PATIENTS_BY_DATE_RANGE,
+    GET_NUMBER_OF_PATIENTS_HOSPITALIZED_BY_DEPARTMENT,
+    GET_HOSPITALIZED_PATIENTS,
+    GET_NUMBER_OF_PATIENTS_DISCHARGED,
+    GET_NUMBER_OF_PATIENTS_ASSIGNED_TO_PROFESSIONAL_DISCHARGED,
+    COUNT_PATIENTS,
+    ENABLE_COLUMNAR_STORE,
+    GET_ADMISSIONS,
+    GET_ADMISSIONS_BY_REASON,
+    GET_ASSIGNMENTS_BY_SPECIALIZATION,
+    GET_STATUS_CHANGES,
+    SNAPSHOT,
+    CHECKPOINT,
+    RESTORE
+}
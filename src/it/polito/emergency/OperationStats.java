@@ -0,0 +1,68 @@
+package it.polito.emergency;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The statistics of an operation since the measurements were last reset.
+ * Latencies are in nanoseconds, with a relative error below 1/16.
+ */
+public class OperationStats {
+
+    private final String operation;
+    private final long count, errors;
+    private final double throughput, mean;
+    private final long p50, p99, p999;
+
+    @ConstructorProperties({ "operation", "count", "errors", "throughput", "mean", "p50", "p99", "p999" })
+    public OperationStats(String operation, long count, long errors, double throughput, double mean, long p50, long p99, long p999) {
+        this.operation = operation;
+        this.count = count;
+        this.errors = errors;
+        this.throughput = throughput;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return The mean number of calls per second.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, %d errors, %.1f/s, mean %.0f ns, p50 %d ns, p99 %d ns, p99.9 %d ns",
+                             operation, count, errors, throughput, mean, p50, p99, p999);
+    }
+}
@@ -0,0 +1,142 @@
+package it.polito.emergency;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parses a professionals CSV file in parallel.
+ * The file is split into line-aligned chunks, each chunk is memory-mapped and parsed
+ * on the fork-join pool, and the results are handed back in file order so that
+ * the caller can publish them in a single step.
+ */
+class ParallelProfessionalReader {
+
+    /** Upper bound of a chunk, well below the 2 GB limit of a single mapping. */
+    static final long MAX_CHUNK_SIZE = 64L << 20;
+
+    /** The outcome of parsing one chunk. */
+    static class Chunk {
+        final List<Professional> professionals = new ArrayList<>();
+        final List<ImportError> errors = new ArrayList<>();
+        int lines;
+    }
+
+    private final ForkJoinPool pool;
+    private final Interner strings;
+
+    ParallelProfessionalReader(ForkJoinPool pool, Interner strings) {
+        this.pool = pool;
+        this.strings = strings;
+    }
+
+    /**
+     * Parses the file.
+     *
+     * @param file The CSV file, whose first line is a header.
+     * @return The parsed chunks in file order; error line numbers are relative to the whole file.
+     * @throws IOException If the file cannot be read.
+     */
+    List<Chunk> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i], to = bounds[i + 1];
+                boolean header = i == 0;
+                tasks.add(() -> parse(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), header));
+            }
+            List<Chunk> chunks = new ArrayList<>();
+            int lineOffset = 0;
+            for (Future<Chunk> f : pool.invokeAll(tasks)) {
+                Chunk chunk = f.get();
+                for (ImportError e : chunk.errors)
+                    e.line += lineOffset;
+                lineOffset += chunk.lines;
+                chunks.add(chunk);
+            }
+            return chunks;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Splits the file into about one chunk per worker, moving every boundary
+     * just past the end of the line it falls in.
+     */
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(pool.getParallelism(), (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long step = Math.max(1, size / count);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long next = step;
+        while (next < size) {
+            long boundary = nextLineStart(channel, next, probe);
+            if (boundary >= size)
+                break;
+            if (boundary > bounds.get(bounds.size() - 1))
+                bounds.add(boundary);
+            next = Math.max(boundary, next) + step;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0)
+                return channel.size();
+            for (int i = 0; i < read; i++)
+                if (probe.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+    }
+
+    private Chunk parse(MappedByteBuffer buffer, boolean header) {
+        Chunk chunk = new Chunk();
+        CsvTokenizer fields = new CsvTokenizer(6);
+        byte[] line = new byte[256];
+        boolean skip = header;
+        while (buffer.hasRemaining()) {
+            int length = 0;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n')
+                    break;
+                if (length == line.length)
+                    line = Arrays.copyOf(line, length * 2);
+                line[length++] = b;
+            }
+            if (length > 0 && line[length - 1] == '\r')
+                length--;
+            chunk.lines++;
+            if (skip) { // to skip the header
+                skip = false;
+                continue;
+            }
+            String text = new String(line, 0, length, StandardCharsets.UTF_8);
+            if (text.isBlank())
+                continue;
+            try {
+                chunk.professionals.add(EmergencyApp.parseProfessional(fields, text, strings));
+            } catch (EmergencyException e) {
+                chunk.errors.add(new ImportError(chunk.lines, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+}
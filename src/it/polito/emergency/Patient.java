@@ -6,21 +6,47 @@ import java.time.*;
 
 public class Patient {
 
-    String fiscalCode, name, surname, dateOfBirth, reason, dateTimeAccepted;
-    LocalDate birthDate;
-    LocalDate dateAccepted;
+    // the dates are epoch days, and the names shared by many patients are interned
+    final String fiscalCode, name, surname, reason;
+    final int birthDay, acceptedDay;
     PatientStatus status;
+    Department department; // holding a bed while hospitalized, guarded by the patient's monitor
+    int severity;
+    // position in the TriageQueue, guarded by the queue's monitor
+    int triageSlot = -1;
+    long arrival = -1;
+    // row in the PatientColumns, if any, guarded by the patient's monitor
+    int row = -1;
+
+    /** The most urgent severity level. */
+    public static final int MOST_URGENT = 1;
+    /** The least urgent severity level. */
+    public static final int LEAST_URGENT = 5;
+    /** The severity of a patient whose urgency has not been assessed yet. */
+    public static final int DEFAULT_SEVERITY = 3;
+
     public Patient(String fiscalCode, String name, String surname, String dateOfBirth, String reason,
             String dateTimeAccepted) {
+        this(fiscalCode, name, surname, dateOfBirth, reason, dateTimeAccepted, DEFAULT_SEVERITY);
+    }
+
+    public Patient(String fiscalCode, String name, String surname, String dateOfBirth, String reason,
+            String dateTimeAccepted, int severity) {
+        this(fiscalCode, name, surname, LocalDate.parse(dateOfBirth), reason, LocalDate.parse(dateTimeAccepted), severity,
+             Interner.NONE);
+    }
+
+    // package-private: builds a patient of an emergency room, whose dictionary stores the names
+    Patient(String fiscalCode, String name, String surname, LocalDate birthDate, String reason,
+            LocalDate dateAccepted, int severity, Interner strings) {
         this.fiscalCode = fiscalCode;
-        this.name = name;
-        this.surname = surname;
-        this.dateOfBirth = dateOfBirth;
-        this.birthDate = LocalDate.parse(dateOfBirth);
+        this.name = strings.intern(name);
+        this.surname = strings.intern(surname);
+        this.birthDay = (int) birthDate.toEpochDay();
         this.reason = reason;
-        this.dateTimeAccepted = dateTimeAccepted;
-        this.dateAccepted = LocalDate.parse(dateTimeAccepted);
+        this.acceptedDay = (int) dateAccepted.toEpochDay();
         this.status = PatientStatus.ADMITTED;
+        this.severity = severity;
     }
 
     public String getFiscalCode() {
@@ -36,7 +62,7 @@ public class Patient {
     }
 
     public String getDateOfBirth() {
-        return dateOfBirth;
+        return getBirthDate().toString();
     }
 
     public String getReason() {
@@ -44,23 +70,31 @@ public class Patient {
     }
 
     public String getDateTimeAccepted() {
-        return dateTimeAccepted;
+        return getDateAccepted().toString();
     }
 
-    public PatientStatus getStatus() {
+    public synchronized PatientStatus getStatus() {
         return status;
     }
 
-    public void setStatus(PatientStatus stat) {
+    // package-private: status transitions go through EmergencyApp, which keeps the counters
+    synchronized void setStatus(PatientStatus stat) {
         this.status = stat;
     }
 
     public LocalDate getBirthDate() {
-        return birthDate;
+        return LocalDate.ofEpochDay(birthDay);
     }
 
     public LocalDate getDateAccepted() {
-        return dateAccepted;
+        return LocalDate.ofEpochDay(acceptedDay);
+    }
+
+    /**
+     * @return The triage severity, from {@link #MOST_URGENT} to {@link #LEAST_URGENT}.
+     */
+    public synchronized int getSeverity() {
+        return severity;
     }
     
 }
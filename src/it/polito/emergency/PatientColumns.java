@@ -0,0 +1,140 @@
+package it.polito.emergency;
+
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A column store of the patient attributes used by the aggregate queries, kept off the heap:
+ * one row per patient, in order of registration, with the status, the day of acceptance,
+ * the specialization of the assigned professional and the department holding a bed.
+ * Each column is a direct buffer, so a count is a sequential loop over a few bytes per
+ * patient, with no object to follow and nothing for the collector to trace.
+ * <p>
+ * Rows are stored in chunks of {@link #CHUNK_ROWS}, so the store grows without copying.
+ * Specializations and departments are stored as int codes, 0 standing for none, so that
+ * coding a new value never fails once the row of a patient has started changing.
+ * Rows are added under the monitor of the store, and a row is changed by the holder of
+ * the monitor of its patient; a count running meanwhile may or may not see the changes
+ * in progress.
+ */
+class PatientColumns {
+
+    static final int CHUNK_ROWS = 1 << 16;
+    /** Matches any status, specialization or department. */
+    static final int ANY = -1;
+
+    private static final class Chunk {
+        final ByteBuffer status = column(Byte.BYTES);
+        final ByteBuffer day = column(Integer.BYTES);
+        final ByteBuffer specialization = column(Integer.BYTES);
+        final ByteBuffer department = column(Integer.BYTES);
+
+        private static ByteBuffer column(int width) {
+            return ByteBuffer.allocateDirect(CHUNK_ROWS * width).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+    private final Map<String, Integer> specializations = new ConcurrentHashMap<>();
+    private final Map<String, Integer> departments = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the row of a patient.
+     *
+     * @return The number of the row.
+     */
+    synchronized int add(Patient patient) {
+        int row = size;
+        if (row == chunks.length * CHUNK_ROWS) {
+            Chunk[] larger = Arrays.copyOf(chunks, chunks.length + 1);
+            larger[chunks.length] = new Chunk();
+            chunks = larger;
+        }
+        chunks[row / CHUNK_ROWS].day.putInt(row % CHUNK_ROWS * Integer.BYTES, patient.acceptedDay);
+        set(row, patient.status, null, patient.department == null ? null : patient.department.getName());
+        size = row + 1; // publishes the row to the counts
+        return row;
+    }
+
+    /**
+     * Changes the row of a patient; the caller holds the patient's monitor.
+     *
+     * @param specialization The specialization of the assigned professional, or null if not assigned.
+     * @param department The department holding a bed for the patient, or null.
+     */
+    void set(int row, PatientStatus status, String specialization, String department) {
+        Chunk chunk = chunks[row / CHUNK_ROWS];
+        int i = row % CHUNK_ROWS;
+        chunk.status.put(i, (byte) status.ordinal());
+        chunk.specialization.putInt(i * Integer.BYTES, code(specializations, specialization));
+        chunk.department.putInt(i * Integer.BYTES, code(departments, department));
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        if (value == null)
+            return 0;
+        Integer code = codes.get(value);
+        if (code != null)
+            return code;
+        synchronized (codes) {
+            return codes.computeIfAbsent(value, k -> codes.size() + 1);
+        }
+    }
+
+    /**
+     * @param value A specialization or department, or null for any.
+     * @return Its code, {@link #ANY} for null, or Integer.MIN_VALUE if never stored, so that no row matches.
+     */
+    private static int lookup(Map<String, Integer> codes, String value) {
+        if (value == null)
+            return ANY;
+        Integer code = codes.get(value);
+        return code == null ? Integer.MIN_VALUE : code;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Counts the patients matching all the given conditions.
+     *
+     * @param status The status, or null for any.
+     * @param from The first epoch day of acceptance.
+     * @param to The last epoch day of acceptance.
+     * @param specialization The specialization of the assigned professional, or null for any.
+     * @param department The department holding a bed, or null for any.
+     * @return The number of matching rows.
+     */
+    int count(PatientStatus status, long from, long to, String specialization, String department) {
+        int wantedStatus = status == null ? ANY : status.ordinal();
+        int wantedSpecialization = lookup(specializations, specialization);
+        int wantedDepartment = lookup(departments, department);
+        if (wantedSpecialization == Integer.MIN_VALUE || wantedDepartment == Integer.MIN_VALUE)
+            return 0;
+        int rows = size;
+        Chunk[] all = chunks;
+        int count = 0;
+        for (int c = 0; c * CHUNK_ROWS < rows; c++) {
+            Chunk chunk = all[c];
+            int n = Math.min(CHUNK_ROWS, rows - c * CHUNK_ROWS);
+            for (int i = 0; i < n; i++) {
+                if (wantedStatus != ANY && chunk.status.get(i) != wantedStatus)
+                    continue;
+                int day = chunk.day.getInt(i * Integer.BYTES);
+                if (day < from || day > to)
+                    continue;
+                if (wantedSpecialization != ANY && chunk.specialization.getInt(i * Integer.BYTES) != wantedSpecialization)
+                    continue;
+                if (wantedDepartment != ANY && chunk.department.getInt(i * Integer.BYTES) != wantedDepartment)
+                    continue;
+                count++;
+            }
+        }
+        return count;
+    }
+}
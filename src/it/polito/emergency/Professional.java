@@ -4,29 +4,35 @@ import java.time.*;
 
 public class Professional {
 
-    String id, name, surname, specialization, period, workingHours;
-    LocalDate start, end;
+    /** The working hours of a professional registered without them. */
+    static final String ALWAYS = "24/7";
+
+    // the period is kept as epoch days, the strings shared by many professionals are interned
+    final String id, name, surname, specialization;
+    final String workingHours; // null for ALWAYS
+    final int startDay, endDay;
+
     public Professional (String id, String name, String surname, String specialization, String period) {
-        String[] temp = period.split(" to ");
-        start = LocalDate.parse(temp[0]);
-        end = LocalDate.parse(temp[1]);
-        this.id = id;
-        this.name = name;
-        this.surname = surname;
-        this.specialization = specialization;
-        this.period = period;
-        this.workingHours = "24/7";
+        this(id, name, surname, specialization, period, null);
     }
     public Professional (String id, String name, String surname, String specialization, String period, String workingHours) {
-        String[] temp = period.split(" to ");
-        start = LocalDate.parse(temp[0]);
-        end = LocalDate.parse(temp[1]);
+        this(id, name, surname, specialization, period, workingHours, Interner.NONE);
+    }
+    // package-private: builds a professional of an emergency room, whose dictionary stores the shared strings
+    Professional (String id, String name, String surname, String specialization, String period, String workingHours, Interner strings) {
+        this(id, name, surname, specialization, LocalDate.parse(period.split(" to ")[0]),
+             LocalDate.parse(period.split(" to ")[1]), workingHours, strings);
+    }
+    // package-private: rebuilds a professional from a snapshot, without parsing the period
+    Professional (String id, String name, String surname, String specialization, LocalDate start, LocalDate end, String workingHours,
+                  Interner strings) {
+        this.startDay = (int) start.toEpochDay();
+        this.endDay = (int) end.toEpochDay();
         this.id = id;
-        this.name = name;
-        this.surname = surname;
-        this.specialization = specialization;
-        this.period = period;
-        this.workingHours = workingHours;
+        this.name = strings.intern(name);
+        this.surname = strings.intern(surname);
+        this.specialization = strings.intern(specialization);
+        this.workingHours = workingHours == null || workingHours.equals(ALWAYS) ? null : strings.intern(workingHours);
     }
     public String getId() {
         return id;
@@ -45,16 +51,16 @@ public class Professional {
     }
 
     public String getPeriod() {
-        return period;
+        return getStart() + " to " + getEnd();
     }
 
     public String getWorkingHours() {
-        return workingHours;
+        return workingHours == null ? ALWAYS : workingHours;
     }
 	public LocalDate getStart() {
-		return start;
+		return LocalDate.ofEpochDay(startDay);
 	}
 	public LocalDate getEnd() {
-		return end;
+		return LocalDate.ofEpochDay(endDay);
 	}
 }
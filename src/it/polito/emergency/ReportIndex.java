@@ -0,0 +1,145 @@
+package it.polito.emergency;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Secondary indexes over the saved reports: by patient, by professional and by date.
+ * Every entry packs the day of the report and its number in a single long, so each
+ * posting list is a sorted primitive array in time order, and a page of results is a
+ * slice of it. Reports usually arrive in time order, which makes insertion an append.
+ * The day and the professional of every report are also kept by number, to filter
+ * the results of other searches without reading the reports.
+ * A report without a day is indexed by patient and professional only, ahead of the dated ones.
+ * All the operations are synchronized on the index.
+ */
+class ReportIndex {
+
+    /** A growable sorted array of longs. */
+    static class SortedLongs {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            int pos = size;
+            if (size > 0 && values[size - 1] > value) {
+                pos = Arrays.binarySearch(values, 0, size, value);
+                if (pos < 0)
+                    pos = -pos - 1;
+            }
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = value;
+            size++;
+        }
+
+        /** @return The position of the first value not lower than the given one. */
+        int lowerBound(long value) {
+            int pos = Arrays.binarySearch(values, 0, size, value);
+            return pos < 0 ? -pos - 1 : pos;
+        }
+
+        long get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static final SortedLongs EMPTY = new SortedLongs();
+    /** The day of a report whose date is not a day. */
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
+    private final Map<String, SortedLongs> byPatient = new HashMap<>();
+    private final Map<String, SortedLongs> byProfessional = new HashMap<>();
+    private final SortedLongs byDate = new SortedLongs();
+    // day and professional of report n at index n - 1; professionals are numbered from 1 in professionalCodes
+    private int[] days = new int[1024];
+    private int[] professionals = new int[1024];
+    private final Map<String, Integer> professionalCodes = new HashMap<>();
+
+    static long entry(LocalDate day, int id) {
+        return (day.toEpochDay() << 32) | id;
+    }
+
+    static int id(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @param day The day of the report, or null if its date is not a day.
+     */
+    synchronized void add(int id, String professionalId, String fiscalCode, LocalDate day) {
+        int epochDay = day == null ? NO_DAY : (int) day.toEpochDay();
+        long entry = ((long) epochDay << 32) | id;
+        byPatient.computeIfAbsent(fiscalCode, k -> new SortedLongs()).add(entry);
+        byProfessional.computeIfAbsent(professionalId, k -> new SortedLongs()).add(entry);
+        if (day != null)
+            byDate.add(entry);
+        if (id > days.length) {
+            days = Arrays.copyOf(days, Math.max(id, days.length * 2));
+            professionals = Arrays.copyOf(professionals, days.length);
+        }
+        days[id - 1] = epochDay;
+        professionals[id - 1] = professionalCodes.computeIfAbsent(professionalId, k -> professionalCodes.size() + 1);
+    }
+
+    /**
+     * Keeps the reports written by a professional within a range of dates.
+     *
+     * @param ids The numbers of indexed reports.
+     * @param professionalId The ID of the professional, or null for any professional.
+     * @param from The first day of the range, or null for no lower bound.
+     * @param to The last day of the range, or null for no upper bound.
+     * @return The numbers passing the filter, in the same order; reports without a day pass only without bounds.
+     */
+    synchronized int[] filter(int[] ids, String professionalId, LocalDate from, LocalDate to) {
+        int professional = 0;
+        if (professionalId != null) {
+            Integer code = professionalCodes.get(professionalId);
+            if (code == null)
+                return new int[0];
+            professional = code;
+        }
+        boolean bounded = from != null || to != null;
+        long first = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long last = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        int[] out = new int[ids.length];
+        int n = 0;
+        for (int id : ids) {
+            int day = days[id - 1];
+            if ((professional == 0 || professionals[id - 1] == professional) && day >= first && day <= last
+                    && !(bounded && day == NO_DAY))
+                out[n++] = id;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    synchronized List<Integer> byPatient(String fiscalCode, int offset, int limit) {
+        SortedLongs entries = byPatient.getOrDefault(fiscalCode, EMPTY);
+        return page(entries, 0, entries.size(), offset, limit);
+    }
+
+    synchronized List<Integer> byProfessional(String professionalId, int offset, int limit) {
+        SortedLongs entries = byProfessional.getOrDefault(professionalId, EMPTY);
+        return page(entries, 0, entries.size(), offset, limit);
+    }
+
+    synchronized List<Integer> byDate(LocalDate from, LocalDate to, int offset, int limit) {
+        int first = byDate.lowerBound(entry(from, 0));
+        int last = byDate.lowerBound(entry(to.plusDays(1), 0));
+        return page(byDate, first, last, offset, limit);
+    }
+
+    private static List<Integer> page(SortedLongs entries, int first, int last, int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("Negative offset or limit");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = first + offset; i < last && ids.size() < limit; i++)
+            ids.add(id(entries.get(i)));
+        return ids;
+    }
+}
@@ -0,0 +1,148 @@
+package it.polito.emergency;
+
+import java.util.*;
+
+/**
+ * Inverted index over the words of the report descriptions.
+ * Each word maps to the sorted numbers of the reports containing it, stored as
+ * variable-length deltas in a byte array. Reports are indexed strictly in order of
+ * number, so every posting list only ever grows at its end; a report arriving ahead
+ * of its predecessors waits until they have been indexed.
+ * All the operations are synchronized on the index.
+ */
+class ReportSearchIndex {
+
+    /** The sorted report numbers of a word, delta and varint encoded. */
+    static class Postings {
+        private byte[] data = new byte[8];
+        private int length;
+        private int count;
+        private int last;
+
+        void add(int id) {
+            int delta = id - last;
+            last = id;
+            count++;
+            if (length + 5 > data.length)
+                data = Arrays.copyOf(data, data.length * 2);
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            int value = 0, pos = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0, shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += delta;
+                ids[i] = value;
+            }
+            return ids;
+        }
+
+        int count() {
+            return count;
+        }
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Integer, String> pending = new HashMap<>();
+    private int next = 1;
+
+    /**
+     * Splits a text into lower-case words of letters and digits; single characters are dropped.
+     */
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                if (i - start > 1)
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    synchronized void add(int id, String description) {
+        pending.put(id, description);
+        String text;
+        while ((text = pending.remove(next)) != null) {
+            for (String word : words(text))
+                postings.computeIfAbsent(word, k -> new Postings()).add(next);
+            next++;
+        }
+    }
+
+    /**
+     * Finds the reports containing all or any of the given words.
+     *
+     * @param words The words to look for, as returned by {@link #words(String)}.
+     * @param matchAll True to require every word, false to accept any of them.
+     * @return The sorted numbers of the matching reports.
+     */
+    synchronized int[] search(Collection<String> words, boolean matchAll) {
+        List<Postings> lists = new ArrayList<>();
+        for (String word : words) {
+            Postings p = postings.get(word);
+            if (p != null)
+                lists.add(p);
+            else if (matchAll)
+                return new int[0];
+        }
+        if (lists.isEmpty())
+            return new int[0];
+        // rarest words first, so that intersections shrink quickly
+        lists.sort(Comparator.comparingInt(Postings::count));
+        int[] result = lists.get(0).decode();
+        for (int i = 1; i < lists.size(); i++)
+            result = matchAll ? intersect(result, lists.get(i).decode()) : union(result, lists.get(i).decode());
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j]))
+                out[n++] = a[i++];
+            else if (i == a.length || b[j] < a[i])
+                out[n++] = b[j++];
+            else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
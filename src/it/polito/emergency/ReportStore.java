@@ -0,0 +1,54 @@
+package it.polito.emergency;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the reports of the emergency room are kept.
+ * Reports are numbered from 1 in order of saving.
+ */
+interface ReportStore extends AutoCloseable {
+
+    /**
+     * Saves a new report under the next number; it is on disk only once {@link #commit(int)} returns.
+     * A report is numbered only if this method returns.
+     *
+     * @return The saved report.
+     * @throws IOException If the report cannot be stored.
+     */
+    Report append(String professionalId, String fiscalCode, String date, String description) throws IOException;
+
+    /**
+     * Waits until a saved report, and every one before it, is on disk.
+     *
+     * @param id The number of the report.
+     * @throws IOException If the report cannot be forced to disk.
+     */
+    default void commit(int id) throws IOException {
+    }
+
+    /**
+     * Saves several reports under the next numbers, in order; their own numbers are ignored.
+     *
+     * @throws IOException If the reports cannot be stored.
+     */
+    default void appendAll(List<Report> reports) throws IOException {
+        for (Report r : reports)
+            append(r.getProfessionalId(), r.getFiscalCode(), r.getDate(), r.getDescription());
+    }
+
+    /**
+     * @param id The number of the report.
+     * @return The report, or null if there is no report with that number.
+     * @throws IOException If the report cannot be read.
+     */
+    Report get(int id) throws IOException;
+
+    /**
+     * @return The number of saved reports, which is also the number of the last one.
+     */
+    int size();
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,88 @@
+package it.polito.emergency;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * A count of occurrences over a sliding window of up to a day, in fixed memory.
+ * Occurrences are counted in two rings of slots: one per minute over the last hour and
+ * one per hour over the last day and the hour before it, so that a window of a day starting
+ * within an hour is still covered. A slot remembers the minute or the hour it counts, so a
+ * slot left from an earlier lap of the ring is reset when reused and ignored when summed.
+ * Counting is O(1) and a sum reads at most 60 slots.
+ * All the operations are synchronized on the counter.
+ */
+class RollingCounter {
+
+    static final int MINUTES = 60;
+    static final int HOURS = 25;
+    static final Duration LONGEST = Duration.ofHours(24);
+
+    private final long[] perMinute = new long[MINUTES];
+    private final long[] minutes = new long[MINUTES]; // minute since the epoch counted by each slot
+    private final long[] perHour = new long[HOURS];
+    private final long[] hours = new long[HOURS];
+
+    RollingCounter() {
+        Arrays.fill(minutes, -1);
+        Arrays.fill(hours, -1);
+    }
+
+    /**
+     * Counts an occurrence.
+     *
+     * @param millis The time of the occurrence, in milliseconds since the epoch.
+     */
+    synchronized void increment(long millis) {
+        long minute = millis / 60_000;
+        int m = (int) (minute % MINUTES);
+        if (minutes[m] != minute) {
+            minutes[m] = minute;
+            perMinute[m] = 0;
+        }
+        perMinute[m]++;
+        long hour = minute / 60;
+        int h = (int) (hour % HOURS);
+        if (hours[h] != hour) {
+            hours[h] = hour;
+            perHour[h] = 0;
+        }
+        perHour[h]++;
+    }
+
+    /**
+     * Sums the occurrences of the current minute and of the minutes before it within the window;
+     * windows longer than an hour are rounded up to whole hours, from the start of the hour
+     * the window starts in to the current one.
+     *
+     * @param millis The current time, in milliseconds since the epoch.
+     * @param window The length of the window, from one minute to {@link #LONGEST}.
+     * @return The number of occurrences within the window.
+     */
+    synchronized long sum(long millis, Duration window) {
+        long length = window.toMinutes();
+        long minute = millis / 60_000;
+        long total = 0;
+        if (length <= MINUTES) {
+            for (long t = minute - length + 1; t <= minute; t++) {
+                int m = Math.floorMod(t, MINUTES);
+                if (minutes[m] == t)
+                    total += perMinute[m];
+            }
+        } else {
+            long hour = minute / 60;
+            for (long t = Math.floorDiv(minute - length + 1, 60); t <= hour; t++) {
+                int h = Math.floorMod(t, HOURS);
+                if (hours[h] == t)
+                    total += perHour[h];
+            }
+        }
+        return total;
+    }
+
+    static Duration check(Duration window) {
+        if (window.toMinutes() < 1 || window.compareTo(LONGEST) > 0)
+            throw new IllegalArgumentException("Window out of range: " + window);
+        return window;
+    }
+}
@@ -0,0 +1,324 @@
+package it.polito.emergency;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.LongStream;
+
+/**
+ * Interval index over the service periods of the professionals sharing a specialization.
+ * The periods are kept in a centered interval tree, so "who is on duty on day D"
+ * costs O(log n + k) where k is the number of professionals returned.
+ * The tree is rebuilt lazily on the first query following a change of the roster.
+ * <p>
+ * The index also dispatches patients, to the least-loaded professional on duty: the caseload
+ * of a professional is the number of patients assigned to them and not yet discharged.
+ * The days are split at the starts and ends of the periods into a segment tree, and each
+ * professional sits, ordered by caseload then by ID, in the O(log n) nodes whose days their
+ * period covers. The professionals on duty on a day are those of the nodes on the path to
+ * that day, so the least-loaded one is the least of the first ones of O(log n) nodes, and
+ * a dispatch or a change of caseload costs O(log² n), however many are off duty.
+ * All the operations are synchronized on the index.
+ */
+class ShiftIndex {
+
+    private static class Node {
+        final long center;
+        final Professional[] byStart; // intervals containing center, ascending start
+        final Professional[] byEnd;   // same intervals, descending end
+        Node left, right;
+
+        Node(long center, List<Professional> overlapping) {
+            this.center = center;
+            this.byStart = overlapping.toArray(new Professional[0]);
+            this.byEnd = byStart.clone();
+            Arrays.sort(byStart, Comparator.comparingInt(p -> p.startDay));
+            Arrays.sort(byEnd, Comparator.comparingInt((Professional p) -> p.endDay).reversed());
+        }
+    }
+
+    /** The caseload of a professional, ordered by load then by ID. */
+    private static class Load implements Comparable<Load> {
+        final Professional professional;
+        final int caseload;
+
+        Load(Professional professional, int caseload) {
+            this.professional = professional;
+            this.caseload = caseload;
+        }
+
+        @Override
+        public int compareTo(Load other) {
+            int c = Integer.compare(caseload, other.caseload);
+            return c != 0 ? c : professional.getId().compareTo(other.professional.getId());
+        }
+    }
+
+    private final Map<String, Professional> members = new LinkedHashMap<>();
+    private Node root;
+    private boolean dirty;
+    private final Map<String, Load> loads = new HashMap<>();
+    // the segment tree of the dispatch, rebuilt with the interval tree
+    private long[] bounds = new long[0];        // sorted distinct starts and ends + 1 of the periods
+    private List<TreeSet<Load>> duty = List.of(); // by node, from 1: the professionals covering its days
+    private final Map<String, List<TreeSet<Load>>> dutyNodes = new HashMap<>();
+
+    synchronized void add(Professional professional) {
+        members.put(professional.getId(), professional);
+        dirty = true;
+        // a re-registered professional keeps its caseload
+        Load old = loads.get(professional.getId());
+        setLoad(professional, old == null ? 0 : old.caseload);
+    }
+
+    /**
+     * Adds several professionals at once: queries see either none or all of them.
+     */
+    synchronized void addAll(Collection<Professional> professionals) {
+        for (Professional p : professionals)
+            add(p);
+    }
+
+    synchronized void remove(String id) {
+        if (members.remove(id) != null) {
+            dirty = true;
+            loads.remove(id);
+        }
+    }
+
+    private void setLoad(Professional professional, int caseload) {
+        Load load = new Load(professional, caseload);
+        Load old = loads.put(professional.getId(), load);
+        // while dirty, the segment tree is rebuilt from the loads before its next use
+        List<TreeSet<Load>> nodes = dirty ? null : dutyNodes.get(professional.getId());
+        if (nodes != null) {
+            for (TreeSet<Load> node : nodes) {
+                node.remove(old);
+                node.add(load);
+            }
+        }
+    }
+
+    /**
+     * Picks the least-loaded professional on duty on the given day, lowest ID first
+     * among equally loaded ones, and charges the new patient to them.
+     *
+     * @param day The day the patient was admitted, as an epoch day.
+     * @return The selected professional, or null if nobody is on duty that day.
+     */
+    synchronized Professional assign(int day) {
+        tree();
+        int segments = bounds.length - 1;
+        if (segments < 1 || day < bounds[0] || day >= bounds[segments])
+            return null;
+        int pos = Arrays.binarySearch(bounds, day);
+        int segment = pos >= 0 ? pos : -pos - 2;
+        Load best = null;
+        int node = 1, lo = 0, hi = segments;
+        while (true) {
+            TreeSet<Load> covering = duty.get(node);
+            if (covering != null && !covering.isEmpty() && (best == null || covering.first().compareTo(best) < 0))
+                best = covering.first();
+            if (hi - lo == 1)
+                break;
+            int mid = (lo + hi) >>> 1;
+            if (segment < mid) {
+                node = 2 * node;
+                hi = mid;
+            } else {
+                node = 2 * node + 1;
+                lo = mid;
+            }
+        }
+        if (best == null)
+            return null;
+        setLoad(best.professional, best.caseload + 1);
+        return best.professional;
+    }
+
+    /**
+     * Changes the caseload of a professional, when one of their patients is discharged
+     * or comes back.
+     *
+     * @param id The ID of the professional; ignored if no longer in the index.
+     * @param delta The change of caseload.
+     */
+    synchronized void charge(String id, int delta) {
+        Load load = loads.get(id);
+        if (load != null)
+            setLoad(load.professional, load.caseload + delta);
+    }
+
+    synchronized int caseload(String id) {
+        Load load = loads.get(id);
+        return load == null ? 0 : load.caseload;
+    }
+
+    synchronized boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * @return The IDs of all the indexed professionals, in insertion order.
+     */
+    synchronized List<String> ids() {
+        return new ArrayList<>(members.keySet());
+    }
+
+    /**
+     * Retrieves the professionals whose service period contains the given day.
+     *
+     * @param day The day to check.
+     * @return The professionals on duty, in no particular order.
+     */
+    synchronized List<Professional> onDuty(LocalDate day) {
+        List<Professional> result = new ArrayList<>();
+        stab(tree(), day.toEpochDay(), result);
+        return result;
+    }
+
+    /**
+     * Retrieves the professionals whose service period covers the whole given period.
+     * The search follows the centers of the tree as a lookup of the first day would, but
+     * a node whose center lies before the last day of the period has nobody covering it on
+     * its left. This costs O(log n + k), plus the professionals on duty on the first day
+     * at the single node whose center lies within the period, if any.
+     *
+     * @param start The first day of the period.
+     * @param end The last day of the period; a day before start stands for start.
+     * @return The professionals covering the period, in no particular order.
+     */
+    synchronized List<Professional> covering(LocalDate start, LocalDate end) {
+        long first = start.toEpochDay();
+        long last = Math.max(first, end.toEpochDay());
+        List<Professional> result = new ArrayList<>();
+        Node node = tree();
+        while (node != null) {
+            if (last < node.center) {
+                // every period of the node ends after the last day
+                for (Professional p : node.byStart) {
+                    if (p.startDay > first)
+                        break;
+                    result.add(p);
+                }
+                node = node.left;
+            } else if (first > node.center) {
+                // every period of the node starts before the first day
+                for (Professional p : node.byEnd) {
+                    if (p.endDay < last)
+                        break;
+                    result.add(p);
+                }
+                node = node.right;
+            } else {
+                // the periods on either side end before the last day or start after the first
+                for (Professional p : node.byStart) {
+                    if (p.startDay > first)
+                        break;
+                    if (p.endDay >= last)
+                        result.add(p);
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Node tree() {
+        if (dirty) {
+            // a period ending before it starts never covers any day
+            List<Professional> valid = members.values().stream()
+                            .filter(p -> p.endDay >= p.startDay)
+                            .toList();
+            root = build(valid);
+            buildDuty(valid);
+            dirty = false;
+        }
+        return root;
+    }
+
+    private void buildDuty(List<Professional> valid) {
+        bounds = valid.stream()
+                      .flatMapToLong(p -> LongStream.of(p.startDay, p.endDay + 1L))
+                      .sorted()
+                      .distinct()
+                      .toArray();
+        int segments = Math.max(1, bounds.length - 1);
+        duty = new ArrayList<>(Collections.nCopies(4 * segments, null));
+        dutyNodes.clear();
+        for (Professional p : valid) {
+            List<TreeSet<Load>> nodes = new ArrayList<>();
+            cover(1, 0, segments, Arrays.binarySearch(bounds, p.startDay), Arrays.binarySearch(bounds, p.endDay + 1L), nodes);
+            Load load = loads.get(p.getId());
+            for (TreeSet<Load> node : nodes)
+                node.add(load);
+            dutyNodes.put(p.getId(), nodes);
+        }
+    }
+
+    /** Collects the nodes whose segments make up the segments from first included to last excluded. */
+    private void cover(int node, int lo, int hi, int first, int last, List<TreeSet<Load>> nodes) {
+        if (last <= lo || hi <= first)
+            return;
+        if (first <= lo && hi <= last) {
+            if (duty.get(node) == null)
+                duty.set(node, new TreeSet<>());
+            nodes.add(duty.get(node));
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        cover(2 * node, lo, mid, first, last, nodes);
+        cover(2 * node + 1, mid, hi, first, last, nodes);
+    }
+
+    private static Node build(List<Professional> intervals) {
+        if (intervals.isEmpty())
+            return null;
+        long[] endpoints = new long[intervals.size() * 2];
+        int i = 0;
+        for (Professional p : intervals) {
+            endpoints[i++] = p.startDay;
+            endpoints[i++] = p.endDay;
+        }
+        Arrays.sort(endpoints);
+        long center = endpoints[endpoints.length / 2];
+
+        List<Professional> left = new ArrayList<>();
+        List<Professional> right = new ArrayList<>();
+        List<Professional> overlapping = new ArrayList<>();
+        for (Professional p : intervals) {
+            if (p.endDay < center)
+                left.add(p);
+            else if (p.startDay > center)
+                right.add(p);
+            else
+                overlapping.add(p);
+        }
+        Node node = new Node(center, overlapping);
+        node.left = build(left);
+        node.right = build(right);
+        return node;
+    }
+
+    private static void stab(Node node, long day, List<Professional> result) {
+        while (node != null) {
+            if (day < node.center) {
+                for (Professional p : node.byStart) {
+                    if (p.startDay > day)
+                        break;
+                    result.add(p);
+                }
+                node = node.left;
+            } else if (day > node.center) {
+                for (Professional p : node.byEnd) {
+                    if (p.endDay < day)
+                        break;
+                    result.add(p);
+                }
+                node = node.right;
+            } else {
+                result.addAll(Arrays.asList(node.byStart));
+                return;
+            }
+        }
+    }
+}
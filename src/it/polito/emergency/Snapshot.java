@@ -0,0 +1,203 @@
+package it.polito.emergency;
+
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * A point-in-time copy of the state of an emergency room, and its binary file format.
+ * <p>
+ * The file starts with a magic number, a version and the number of the last logged change
+ * it includes, followed by a table of every
+ * distinct string; the records then refer to strings by their position in the table,
+ * so repeated specializations, names and dates of reports are stored once.
+ * Days are stored as epoch-day ints. The reports are counted, and their records follow only
+ * when the snapshot carries them: a checkpoint leaves them in the report log next to it. The file is written next to its final path, forced
+ * to disk and moved in place once complete, and the move itself is forced to disk with the
+ * directory, so a crash leaves either the previous snapshot or the complete new one.
+ */
+class Snapshot {
+
+    private static final int MAGIC = 0x45525331; // "ERS1"
+    private static final int VERSION = 3;
+
+    static class DepartmentRecord {
+        final String name;
+        final int maxPatients;
+
+        DepartmentRecord(String name, int maxPatients) {
+            this.name = name;
+            this.maxPatients = maxPatients;
+        }
+    }
+
+    /** The immutable data of a patient, with the mutable ones as they were at capture. */
+    static class PatientRecord {
+        final Patient patient;
+        final PatientStatus status;
+        final int severity;
+        final String department;   // null when not hospitalized
+        final String professional; // null when not assigned
+        final long arrival;
+
+        PatientRecord(Patient patient, PatientStatus status, int severity, String department, String professional, long arrival) {
+            this.patient = patient;
+            this.status = status;
+            this.severity = severity;
+            this.department = department;
+            this.professional = professional;
+            this.arrival = arrival;
+        }
+    }
+
+    final List<Professional> professionals = new ArrayList<>();
+    final List<DepartmentRecord> departments = new ArrayList<>();
+    final List<PatientRecord> patients = new ArrayList<>();
+    final List<Report> reports = new ArrayList<>(); // empty, or the first reportCount reports
+    int reportCount;  // number of reports included in the state
+    long sequence; // number of the last logged change included, 0 if changes are not logged
+
+    void write(Path file) throws IOException {
+        Map<String, Integer> table = new LinkedHashMap<>();
+        for (Professional p : professionals)
+            intern(table, p.getId(), p.getName(), p.getSurname(), p.getSpecialization(), p.getWorkingHours());
+        for (DepartmentRecord d : departments)
+            intern(table, d.name);
+        for (PatientRecord r : patients) {
+            Patient p = r.patient;
+            intern(table, p.getFiscalCode(), p.getName(), p.getSurname(), p.getReason(), r.department, r.professional);
+        }
+        for (Report r : reports)
+            intern(table, r.getProfessionalId(), r.getFiscalCode(), r.getDate(), r.getDescription());
+
+        // a temporary file of its own, so that concurrent writers of the same path do not share it
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sequence);
+                out.writeInt(table.size());
+                for (String s : table.keySet()) {
+                    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(b.length);
+                    out.write(b);
+                }
+                out.writeInt(professionals.size());
+                for (Professional p : professionals) {
+                    ref(out, table, p.getId(), p.getName(), p.getSurname(), p.getSpecialization(), p.getWorkingHours());
+                    out.writeInt(p.startDay);
+                    out.writeInt(p.endDay);
+                }
+                out.writeInt(departments.size());
+                for (DepartmentRecord d : departments) {
+                    ref(out, table, d.name);
+                    out.writeInt(d.maxPatients);
+                }
+                out.writeInt(patients.size());
+                for (PatientRecord r : patients) {
+                    Patient p = r.patient;
+                    ref(out, table, p.getFiscalCode(), p.getName(), p.getSurname(), p.getReason(), r.department, r.professional);
+                    out.writeInt(p.birthDay);
+                    out.writeInt(p.acceptedDay);
+                    out.writeByte(r.status.ordinal());
+                    out.writeByte(r.severity);
+                    out.writeLong(r.arrival);
+                }
+                out.writeInt(reportCount);
+                out.writeInt(reports.size());
+                for (Report r : reports)
+                    ref(out, table, r.getProfessionalId(), r.getFiscalCode(), r.getDate(), r.getDescription());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        syncDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces the entries of a directory to disk, so that a file moved into it survives a crash.
+     * Directories cannot be opened on some platforms, such as Windows, where this does nothing.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    static Snapshot read(Path file, Interner strings) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a snapshot: " + file);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version);
+            snapshot.sequence = in.readLong();
+            String[] table = new String[in.readInt()];
+            for (int i = 0; i < table.length; i++) {
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                table[i] = new String(b, StandardCharsets.UTF_8);
+            }
+            PatientStatus[] statuses = PatientStatus.values();
+            for (int n = in.readInt(); n > 0; n--) {
+                String id = str(in, table), name = str(in, table), surname = str(in, table);
+                String specialization = str(in, table), workingHours = str(in, table);
+                LocalDate start = LocalDate.ofEpochDay(in.readInt());
+                LocalDate end = LocalDate.ofEpochDay(in.readInt());
+                snapshot.professionals.add(new Professional(id, name, surname, specialization, start, end, workingHours, strings));
+            }
+            for (int n = in.readInt(); n > 0; n--)
+                snapshot.departments.add(new DepartmentRecord(str(in, table), in.readInt()));
+            for (int n = in.readInt(); n > 0; n--) {
+                String fiscalCode = str(in, table), name = str(in, table), surname = str(in, table), reason = str(in, table);
+                String department = str(in, table), professional = str(in, table);
+                LocalDate birth = LocalDate.ofEpochDay(in.readInt());
+                LocalDate accepted = LocalDate.ofEpochDay(in.readInt());
+                PatientStatus status = statuses[in.readByte()];
+                int severity = in.readByte();
+                Patient patient = new Patient(fiscalCode, name, surname, birth, reason, accepted, severity, strings);
+                snapshot.patients.add(new PatientRecord(patient, status, severity, department, professional, in.readLong()));
+            }
+            snapshot.reportCount = in.readInt();
+            int count = in.readInt();
+            for (int id = 1; id <= count; id++)
+                snapshot.reports.add(new Report(String.valueOf(id), str(in, table), str(in, table), str(in, table), str(in, table)));
+        }
+        return snapshot;
+    }
+
+    private static void intern(Map<String, Integer> table, String... strings) {
+        for (String s : strings)
+            if (s != null)
+                table.putIfAbsent(s, table.size());
+    }
+
+    /** Writes references to the string table, -1 standing for null. */
+    private static void ref(DataOutputStream out, Map<String, Integer> table, String... strings) throws IOException {
+        for (String s : strings)
+            out.writeInt(s == null ? -1 : table.get(s));
+    }
+
+    private static String str(DataInputStream in, String[] table) throws IOException {
+        int i = in.readInt();
+        return i < 0 ? null : table[i];
+    }
+}
@@ -0,0 +1,86 @@
+package it.polito.emergency;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The changes of the emergency room delivered to one subscriber, in order of change for
+ * each patient. Changes are queued without ever making the changing thread wait: when the
+ * queue is full, the queued changes are dropped and replaced by a single
+ * {@link Event.Type#RESYNC} event, after which the subscriber should rebuild its view from
+ * the emergency room. Changes queued after the RESYNC may already be part of the rebuilt view.
+ */
+public class Subscription implements AutoCloseable {
+
+    private final EventBus bus;
+    private final BlockingQueue<Event> queue;
+    private final Set<Event.Type> types;
+
+    Subscription(EventBus bus, int capacity, Set<Event.Type> types) {
+        this.bus = bus;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.types = types;
+    }
+
+    void offer(Event event) {
+        if (event.type != Event.Type.RESYNC && !types.contains(event.type))
+            return;
+        if (!queue.offer(event)) {
+            // a slow consumer: coalesce everything it missed into one resync; other publishers
+            // may refill the queue between the clear and the offer, so clear until it fits
+            synchronized (this) {
+                Event resync = Event.resync();
+                do {
+                    queue.clear();
+                } while (!queue.offer(resync));
+            }
+        }
+    }
+
+    /**
+     * @return The next change, or null if none is queued.
+     */
+    public Event poll() {
+        return queue.poll();
+    }
+
+    /**
+     * Waits for the next change.
+     *
+     * @param timeout How long to wait.
+     * @param unit The unit of the timeout.
+     * @return The next change, or null if none arrived in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    /**
+     * Waits for the next change.
+     *
+     * @return The next change.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public Event take() throws InterruptedException {
+        return queue.take();
+    }
+
+    /**
+     * Moves the queued changes to a collection, without waiting.
+     *
+     * @param events The collection receiving the changes.
+     * @return The number of changes moved.
+     */
+    public int drainTo(Collection<Event> events) {
+        return queue.drainTo(events);
+    }
+
+    /**
+     * Stops the delivery of changes; the changes already queued can still be read.
+     */
+    @Override
+    public void close() {
+        bus.unsubscribe(this);
+    }
+}
@@ -0,0 +1,137 @@
+package it.polito.emergency;
+
+import java.util.*;
+
+/**
+ * Indexed binary heap of the patients waiting for a professional.
+ * Patients are ordered by severity (most urgent first), then by date of acceptance,
+ * then by order of arrival. Each queued patient remembers its slot in the heap, so
+ * removal and re-prioritization cost O(log n) like insertion and extraction.
+ * All the operations are synchronized on the queue.
+ */
+class TriageQueue {
+
+    private Patient[] heap = new Patient[64];
+    private int size;
+    private long arrivals;
+
+    private static boolean before(Patient a, Patient b) {
+        if (a.severity != b.severity)
+            return a.severity < b.severity;
+        int c = Integer.compare(a.acceptedDay, b.acceptedDay);
+        if (c != 0)
+            return c < 0;
+        return a.arrival < b.arrival;
+    }
+
+    /**
+     * Queues a patient; a patient already queued is left where it is.
+     * A patient queued again keeps its original order of arrival.
+     */
+    synchronized void add(Patient patient) {
+        if (patient.triageSlot >= 0)
+            return;
+        if (patient.arrival < 0)
+            patient.arrival = arrivals++;
+        else if (patient.arrival >= arrivals) // restored from a snapshot
+            arrivals = patient.arrival + 1;
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+        place(patient, size++);
+        siftUp(patient.triageSlot);
+    }
+
+    /**
+     * @return The most urgent patient, or null if nobody is waiting.
+     */
+    synchronized Patient peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Removes and returns the most urgent patient.
+     *
+     * @return The most urgent patient, or null if nobody is waiting.
+     */
+    synchronized Patient poll() {
+        if (size == 0)
+            return null;
+        Patient first = heap[0];
+        remove(first);
+        return first;
+    }
+
+    /**
+     * Removes a patient from the queue, if queued.
+     */
+    synchronized void remove(Patient patient) {
+        int slot = patient.triageSlot;
+        if (slot < 0)
+            return;
+        patient.triageSlot = -1;
+        Patient last = heap[--size];
+        heap[size] = null;
+        if (slot < size) {
+            place(last, slot);
+            siftDown(slot);
+            siftUp(last.triageSlot);
+        }
+    }
+
+    /**
+     * Restores the order after the severity of a queued patient changed.
+     */
+    synchronized void update(Patient patient) {
+        int slot = patient.triageSlot;
+        if (slot >= 0) {
+            siftUp(slot);
+            siftDown(patient.triageSlot);
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The queued patients, most urgent first.
+     */
+    synchronized List<Patient> toList() {
+        List<Patient> temp = new ArrayList<>(Arrays.asList(heap).subList(0, size));
+        temp.sort((a, b) -> a == b ? 0 : before(a, b) ? -1 : 1);
+        return temp;
+    }
+
+    private void place(Patient patient, int slot) {
+        heap[slot] = patient;
+        patient.triageSlot = slot;
+    }
+
+    private void siftUp(int slot) {
+        Patient patient = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (!before(patient, heap[parent]))
+                break;
+            place(heap[parent], slot);
+            slot = parent;
+        }
+        place(patient, slot);
+    }
+
+    private void siftDown(int slot) {
+        Patient patient = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && before(heap[child + 1], heap[child]))
+                child++;
+            if (!before(heap[child], patient))
+                break;
+            place(heap[child], slot);
+            slot = child;
+        }
+        place(patient, slot);
+    }
+}
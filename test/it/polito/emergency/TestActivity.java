@@ -0,0 +1,124 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import java.time.*;
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestActivity {
+
+    /** A clock moved by hand. */
+    private static class ManualClock extends Clock {
+        Instant now = Instant.parse("2024-06-10T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    private EmergencyApp app;
+    private final ManualClock clock = new ManualClock();
+    private int next;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        app.setClock(clock);
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addProfessional("2", "Mik", "Smith", "Orthopedics", "2024-01-01 to 2024-12-31");
+        app.addDepartment("Cardiology", 1);
+    }
+
+    private String admit(String reason) {
+        String fiscalCode = "P" + next++;
+        app.addPatient(fiscalCode, "Name", "Surname", "1980-01-01", reason, "2024-06-10");
+        return fiscalCode;
+    }
+
+    @Test
+    public void testSlidingWindows() throws EmergencyException {
+        admit("Fracture");
+        clock.advance(Duration.ofMinutes(20));
+        admit("Chest pain");
+        String a = admit("Chest pain");
+        app.assignPatientToProfessional(a, "Cardiology");
+        app.dischargeOrHospitalize(a, "Cardiology");
+
+        assertEquals(2, app.getAdmissions(Duration.ofMinutes(15)));
+        assertEquals(3, app.getAdmissions(Duration.ofHours(1)));
+        assertEquals(Map.of("Chest pain", 2), app.getAdmissionsByReason(Duration.ofMinutes(15)));
+        assertEquals(Map.of("Cardiology", 1), app.getAssignmentsBySpecialization(Duration.ofMinutes(1)));
+        assertEquals(1, app.getStatusChanges(PatientStatus.HOSPITALIZED, Duration.ofMinutes(1)));
+        assertEquals(0, app.getStatusChanges(PatientStatus.DISCHARGED, Duration.ofMinutes(1)));
+
+        clock.advance(Duration.ofMinutes(50));
+        assertEquals(0, app.getAdmissions(Duration.ofMinutes(15)));
+        assertEquals(2, app.getAdmissions(Duration.ofMinutes(60)));
+        assertEquals(3, app.getAdmissions(Duration.ofHours(2)));
+
+        clock.advance(Duration.ofHours(25));
+        assertEquals(0, app.getAdmissions(Duration.ofHours(24)));
+        assertTrue(app.getAdmissionsByReason(Duration.ofHours(24)).isEmpty());
+    }
+
+    @Test
+    public void testOldEdgeOfWindow() {
+        clock.advance(Duration.ofMinutes(-70)); // 08:50
+        admit("Fever");
+        clock.advance(Duration.ofMinutes(75)); // 10:05
+        assertEquals(1, app.getAdmissions(Duration.ofHours(2)));
+        assertEquals(0, app.getAdmissions(Duration.ofHours(1)));
+
+        clock.advance(Duration.ofMinutes(30 - 75)); // 09:20
+        admit("Fever");
+        clock.advance(Duration.ofMinutes(23 * 60 + 30)); // 08:50 the next day
+        // from 08:00 the day before, rounded up
+        assertEquals(2, app.getAdmissions(Duration.ofHours(24)));
+        assertEquals(1, app.getAdmissions(Duration.ofHours(23)));
+        assertEquals(0, app.getAdmissions(Duration.ofHours(22)));
+    }
+
+    @Test
+    public void testMissingReason() {
+        try (Subscription changes = app.subscribe(16, Event.Type.PATIENT_ADDED)) {
+            admit(null);
+            assertEquals(Event.Type.PATIENT_ADDED, changes.poll().type);
+        }
+        assertEquals(Map.of(ActivityWindows.OTHER, 1), app.getAdmissionsByReason(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    public void testRingReuse() {
+        admit("Fever");
+        // the same minute slot and the same hour slot, 25 hours later
+        clock.advance(Duration.ofHours(25));
+        admit("Fever");
+        assertEquals(1, app.getAdmissions(Duration.ofMinutes(1)));
+        assertEquals(1, app.getAdmissions(Duration.ofHours(24)));
+    }
+
+    @Test
+    public void testWindowOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> app.getAdmissions(Duration.ofSeconds(30)));
+        assertThrows(IllegalArgumentException.class, () -> app.getAdmissions(Duration.ofHours(25)));
+    }
+}
@@ -0,0 +1,96 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestBatch {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addProfessional("2", "Mik", "Smith", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addProfessional("3", "Ann", "Brown", "Orthopedics", "2024-07-01 to 2024-12-31");
+    }
+
+    @Test
+    public void testAddPatients() {
+        Patient existing = app.addPatient("B", "Bob", "Rossi", "1975-05-05", "Fracture", "2024-06-10");
+        BatchResult<Patient> result = app.addPatients(List.of(
+            new Patient("C", "Carl", "Rossi", "1990-02-02", "Fever", "2024-06-10", 2),
+            new Patient("A", "Ann", "Bianchi", "1980-01-01", "Chest pain", "2024-06-10", 1),
+            new Patient("B", "Bea", "Verdi", "1985-03-03", "Burn", "2024-06-11"),
+            new Patient("D", "Dan", "Neri", "1970-04-04", "Cough", "2024-06-11", 9)));
+
+        assertEquals(List.of("C", "A", "B"), new ArrayList<>(result.getSucceeded().keySet()));
+        assertSame(existing, result.get("B"));
+        assertEquals("Severity out of range!", result.getError("D"));
+        assertNull(result.get("D"));
+
+        assertEquals(3, app.getNumberOfPatients());
+        assertEquals(List.of("A", "B", "C"), app.getPatientsByDate("2024-06-10"));
+        assertTrue(app.getPatientsByDate("2024-06-11").isEmpty());
+        assertEquals(2, app.getPatientsBySurnamePrefix("Ros").size());
+        assertEquals(List.of("A", "C", "B"), app.getTriageQueue());
+    }
+
+    @Test
+    public void testBatchRetried() {
+        Patient a = new Patient("A", "Ann", "Bianchi", "1980-01-01", "Chest pain", "2024-06-10");
+        BatchResult<Patient> first = app.addPatients(List.of(a, a));
+        BatchResult<Patient> retried = app.addPatients(List.of(a));
+        assertNotSame(a, first.get("A"));
+        assertSame(first.get("A"), retried.get("A"));
+        assertEquals(1, app.getNumberOfPatients());
+        assertEquals(List.of("A"), app.getPatientsByDate("2024-06-10"));
+        assertEquals(1, app.getNumberOfPatientsByDate("2024-06-10"));
+        assertEquals(List.of("A"), app.getTriageQueue());
+    }
+
+    @Test
+    public void testAssignPatients() throws EmergencyException {
+        app.addPatients(List.of(
+            new Patient("A", "Ann", "Bianchi", "1980-01-01", "Chest pain", "2024-06-10"),
+            new Patient("B", "Bob", "Rossi", "1975-05-05", "Fracture", "2024-06-10"),
+            new Patient("C", "Carl", "Verdi", "1990-02-02", "Angina", "2024-06-10"),
+            new Patient("D", "Dan", "Neri", "1970-04-04", "Rash", "2024-06-10")));
+        Map<String, String> assignments = new LinkedHashMap<>();
+        assignments.put("A", "Cardiology");
+        assignments.put("B", "Orthopedics");
+        assignments.put("C", "Cardiology");
+        assignments.put("Z", "Cardiology");
+        assignments.put("D", "Dermatology");
+        BatchResult<String> result = app.assignPatients(assignments);
+
+        assertEquals("1", result.get("A"));
+        assertEquals("2", result.get("C"));
+        assertEquals("No professionals available on the date of admission!", result.getError("B"));
+        assertEquals("No patient found with given fiscal code!", result.getError("Z"));
+        assertEquals("No professionals found with given specialization!", result.getError("D"));
+        assertEquals(1, app.getCaseload("1"));
+        assertEquals(1, app.getCaseload("2"));
+    }
+
+    @Test
+    public void testBatchesAreLogged() throws Exception {
+        Path dir = Files.createTempDirectory("batch");
+        try (EmergencyApp logged = new EmergencyApp(dir, EmergencyApp.Durability.GROUP_COMMIT)) {
+            logged.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+            logged.addPatients(List.of(
+                new Patient("A", "Ann", "Bianchi", "1980-01-01", "Chest pain", "2024-06-10"),
+                new Patient("B", "Bob", "Rossi", "1975-05-05", "Fracture", "2024-06-10")));
+            logged.assignPatients(Map.of("A", "Cardiology", "B", "Cardiology"));
+        }
+        try (EmergencyApp recovered = new EmergencyApp(dir, EmergencyApp.Durability.GROUP_COMMIT)) {
+            assertEquals(List.of("A", "B"), recovered.getPatientsByDate("2024-06-10"));
+            assertEquals(2, recovered.getCaseload("1"));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConcurrency {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 500;
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addDepartment("Cardiology", 100);
+    }
+
+    private void runInParallel(Callable<Void> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++)
+                results.add(pool.submit(task));
+            for (Future<Void> f : results)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentIntake() throws Exception {
+        runInParallel(() -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                String code = "P" + i; // every thread registers the same patients
+                app.addPatient(code, "Name", "Surname" + (i % 10), "1990-01-01", "Checkup", "2024-06-" + (10 + i % 5));
+                app.assignPatientToProfessional(code, "Cardiology");
+                app.saveReport("1", code, "2024-06-20", "Visit");
+                app.dischargeOrHospitalize(code, "Cardiology");
+            }
+            return null;
+        });
+        assertEquals(PER_THREAD, app.getNumberOfPatientsByDateRange("2024-06-01", "2024-06-30"));
+        assertEquals(PER_THREAD / 10, app.getPatient("Surname3").size());
+        int hospitalized = 0;
+        for (int i = 0; i < PER_THREAD; i++)
+            if (app.verifyPatient("P" + i) == 0)
+                hospitalized++;
+        assertEquals(0, app.getNumberOfPatients());
+        assertEquals(PER_THREAD - hospitalized, app.getNumberOfPatientsDischarged());
+        assertEquals(PER_THREAD - hospitalized, app.getNumberOfPatientsAssignedToProfessionalDischarged("Cardiology"));
+        Report last = app.saveReport("1", "P0", "2024-06-20", "Visit");
+        assertEquals(String.valueOf(THREADS * PER_THREAD + 1), last.getId());
+    }
+
+    @Test
+    public void testNoOverAdmission() throws Exception {
+        for (int i = 0; i < THREADS * PER_THREAD; i++)
+            app.addPatient("P" + i, "Name", "Surname", "1990-01-01", "Checkup", "2024-06-10");
+        AtomicInteger next = new AtomicInteger();
+        runInParallel(() -> {
+            for (int i = 0; i < PER_THREAD; i++)
+                app.dischargeOrHospitalize("P" + next.getAndIncrement(), "Cardiology");
+            return null;
+        });
+        assertEquals(100, app.getNumberOfPatientsHospitalizedByDepartment("Cardiology"));
+        assertEquals(100, app.getHospitalizedPatients("Cardiology").size());
+        assertEquals(THREADS * PER_THREAD - 100, app.getNumberOfPatientsDischarged());
+    }
+
+    @Test
+    public void testBedReleasedWhenPatientLeaves() throws EmergencyException {
+        app.addDepartment("Small", 1);
+        app.addDepartment("Full", 0);
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-06-10");
+        app.addPatient("B", "Bob", "Builder", "1990-01-01", "Checkup", "2024-06-10");
+        app.dischargeOrHospitalize("A", "Small");
+        app.dischargeOrHospitalize("B", "Small");
+        assertEquals(-1, app.verifyPatient("B"));
+        app.dischargeOrHospitalize("A", "Full");
+        assertEquals(0, app.getNumberOfPatientsHospitalizedByDepartment("Small"));
+        app.dischargeOrHospitalize("B", "Small");
+        assertEquals(0, app.verifyPatient("B"));
+        assertEquals(List.of("B"), app.getHospitalizedPatients("Small"));
+    }
+
+    @Test
+    public void testDepartmentAddedAgainKeepsPatients() throws EmergencyException {
+        app.addDepartment("Small", 1);
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-06-10");
+        app.addPatient("B", "Bob", "Builder", "1990-01-01", "Checkup", "2024-06-10");
+        app.dischargeOrHospitalize("A", "Small");
+        app.addDepartment("Small", 1);
+        assertEquals(List.of("A"), app.getHospitalizedPatients("Small"));
+        app.dischargeOrHospitalize("B", "Small");
+        assertEquals(-1, app.verifyPatient("B"));
+        app.addDepartment("Small", 2);
+        app.addPatient("C", "Carl", "Verdi", "1990-01-01", "Checkup", "2024-06-10");
+        app.dischargeOrHospitalize("C", "Small");
+        assertEquals(2, app.getNumberOfPatientsHospitalizedByDepartment("Small"));
+    }
+}
@@ -0,0 +1,100 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCsvImport {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+    }
+
+    @Test
+    public void testTokenizer() {
+        CsvTokenizer fields = new CsvTokenizer(3);
+        assertEquals(4, fields.split(" a , \"b, c\" ,,d "));
+        assertEquals("a", fields.get(0));
+        assertEquals("b, c", fields.get(1));
+        assertEquals("", fields.get(2));
+        assertEquals(1, fields.split("\"say \"\"hi\"\"\""));
+        assertEquals("say \"hi\"", fields.get(0));
+    }
+
+    @Test
+    public void testProfessionalsWithErrors() throws IOException, EmergencyException {
+        String csv = "id,name,surname,specialization,period,\n"
+                   + "1,Mario,Rossi,Cardiology,2024-06-11 to 2024-06-24 \n"
+                   + "2,Laura,Bianchi,Orthopedics\n"
+                   + "\n"
+                   + "3,Anna,Verdi,Orthopedics,2024-13-01 to 2024-06-30\n"
+                   + "4,Luca,Neri,Orthopedics,2024-06-16 to 2024-06-30\n";
+        assertEquals(2, app.readFromFileProfessionals(new StringReader(csv)));
+        assertEquals(2, app.getImportErrors().size());
+        assertEquals(3, app.getImportErrors().get(0).getLine());
+        assertEquals(5, app.getImportErrors().get(1).getLine());
+        assertEquals(1, app.getProfessionals("Orthopedics").size());
+    }
+
+    @Test
+    public void testDepartmentsWithErrors() throws IOException, EmergencyException {
+        String csv = "departmentName,maxPatients  \nCardiology,20   \nOrthopedics,many\nSurgery\n";
+        assertEquals(1, app.readFromFileDepartments(new StringReader(csv)));
+        assertEquals(2, app.getImportErrors().size());
+        assertEquals(List.of("Cardiology"), app.getDepartments());
+    }
+
+    @Test
+    public void testParallelProfessionals() throws IOException, EmergencyException {
+        StringBuilder csv = new StringBuilder("id,name,surname,specialization,period\r\n");
+        for (int i = 0; i < 5000; i++)
+            csv.append(i).append(",Name,Surname,").append(i % 2 == 0 ? "Cardiology" : "Surgery")
+               .append(i == 4321 ? ",bad period\r\n" : ",2024-01-01 to 2024-12-31\r\n");
+        // a repeated ID: the last line wins
+        csv.append("0,Name,Surname,Surgery,2024-01-01 to 2024-12-31\r\n");
+        Path file = Files.createTempFile("professionals", ".csv");
+        try {
+            Files.writeString(file, csv);
+            assertEquals(5000, app.readFromFileProfessionalsParallel(file));
+            assertEquals(1, app.getImportErrors().size());
+            assertEquals(4323, app.getImportErrors().get(0).getLine());
+            assertEquals(2499, app.getProfessionals("Cardiology").size());
+            assertEquals(2500, app.getProfessionals("Surgery").size());
+            assertEquals("Surgery", app.getProfessionalById("0").getSpecialization());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChunksAreLineAligned() throws Exception {
+        StringBuilder csv = new StringBuilder("id,name,surname,specialization,period\n");
+        for (int i = 0; i < 997; i++)
+            csv.append(i).append(",Näme,Surname,Surgery,2024-01-01 to 2024-12-31\n");
+        csv.append("997,Last,Line,Surgery,2024-01-01 to 2024-12-31"); // no final newline
+        Path file = Files.createTempFile("professionals", ".csv");
+        ForkJoinPool pool = new ForkJoinPool(16);
+        try {
+            Files.writeString(file, csv);
+            List<ParallelProfessionalReader.Chunk> chunks = new ParallelProfessionalReader(pool, new Interner()).read(file);
+            assertTrue(chunks.size() > 1);
+            assertEquals(998, chunks.stream().mapToInt(c -> c.professionals.size()).sum());
+            assertTrue(chunks.stream().allMatch(c -> c.errors.isEmpty()));
+            assertEquals("Näme", chunks.get(1).professionals.get(0).getName());
+        } finally {
+            pool.shutdown();
+            Files.delete(file);
+        }
+    }
+}
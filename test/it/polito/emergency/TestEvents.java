@@ -0,0 +1,120 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestEvents {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addDepartment("Cardiology", 1);
+    }
+
+    private static List<Event.Type> types(Subscription subscription) {
+        List<Event> events = new ArrayList<>();
+        subscription.drainTo(events);
+        return events.stream().map(Event::getType).toList();
+    }
+
+    @Test
+    public void testDelivery() throws Exception {
+        try (Subscription all = app.subscribe(100)) {
+            app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10");
+            app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10");
+            app.setPatientSeverity("A", 1);
+            app.assignPatientToProfessional("A", "Cardiology");
+            app.dischargeOrHospitalize("A", "Cardiology");
+            app.saveReport("1", "A", "2024-06-10", "Angina");
+            app.addPatient("B", "Bob", "Bianchi", "1975-05-05", "Fracture", "2024-06-10");
+            app.dischargeOrHospitalize("B", "Cardiology");
+
+            Event added = all.poll();
+            assertEquals(Event.Type.PATIENT_ADDED, added.getType());
+            assertEquals("A", added.getFiscalCode());
+            assertEquals(Patient.DEFAULT_SEVERITY, added.getSeverity());
+            assertEquals(1, all.poll().getSeverity());
+            Event assigned = all.poll();
+            assertEquals("1", assigned.getProfessionalId());
+            assertEquals("Cardiology", all.poll().getDepartment());
+            Event report = all.poll();
+            assertEquals(Event.Type.REPORT_SAVED, report.getType());
+            assertEquals(1, report.getReportId());
+            assertEquals(List.of(Event.Type.PATIENT_ADDED, Event.Type.DISCHARGED), types(all));
+        }
+    }
+
+    @Test
+    public void testFilterAndClose() throws Exception {
+        Subscription hospital = app.subscribe(10, Event.Type.HOSPITALIZED, Event.Type.DISCHARGED);
+        app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10");
+        app.dischargeOrHospitalize("A", "Cardiology");
+        assertEquals(List.of(Event.Type.HOSPITALIZED), types(hospital));
+        hospital.close();
+        app.addPatient("B", "Bob", "Bianchi", "1975-05-05", "Fracture", "2024-06-10");
+        app.dischargeOrHospitalize("B", "Cardiology");
+        assertNull(hospital.poll());
+    }
+
+    @Test
+    public void testSlowConsumerIsCoalesced() {
+        try (Subscription slow = app.subscribe(4)) {
+            for (int i = 0; i < 10; i++)
+                app.addPatient("P" + i, "N", "S", "1980-01-01", "R", "2024-06-10");
+            List<Event.Type> received = types(slow);
+            assertEquals(Event.Type.RESYNC, received.get(0));
+            assertEquals(1, Collections.frequency(received, Event.Type.RESYNC));
+            assertTrue(received.size() <= 4);
+            // after the resync, changes are delivered again
+            app.addPatient("Q", "N", "S", "1980-01-01", "R", "2024-06-10");
+            assertEquals("Q", slow.poll().getFiscalCode());
+        }
+    }
+
+    @Test
+    public void testConsumerView() throws Exception {
+        Subscription subscription = app.subscribe(100_000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            app.addDepartment("Cardiology", 100);
+            List<Future<?>> work = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                work.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String code = "P" + thread + "-" + i;
+                        app.addPatient(code, "N", "S", "1980-01-01", "R", "2024-06-10");
+                        app.dischargeOrHospitalize(code, "Cardiology");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : work)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+        // a view kept only from the events agrees with the emergency room
+        Set<String> hospitalized = new HashSet<>();
+        int waiting = 0;
+        Event e;
+        while ((e = subscription.poll()) != null) {
+            switch (e.getType()) {
+                case PATIENT_ADDED -> waiting++;
+                case HOSPITALIZED -> { waiting--; hospitalized.add(e.getFiscalCode()); }
+                case DISCHARGED -> { waiting--; hospitalized.remove(e.getFiscalCode()); }
+                default -> { }
+            }
+        }
+        assertEquals(app.getNumberOfPatients(), waiting);
+        assertEquals(new HashSet<>(app.getHospitalizedPatients("Cardiology")), hospitalized);
+    }
+}
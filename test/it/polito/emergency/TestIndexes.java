@@ -0,0 +1,250 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import it.polito.emergency.EmergencyApp.PatientStatus;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIndexes {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addProfessional("2", "Mik", "Smith", "Surgery", "2024-05-01 to 2024-05-28");
+        app.addProfessional("3", "Lay", "Jeremy", "Surgery", "2024-05-10 to 2024-06-30");
+        app.addProfessional("4", "Ally", "Holiday", "Surgery", "2024-06-01 to 2024-07-30");
+    }
+
+    @Test
+    public void testSpecializationIndexNoDuplicates() throws EmergencyException {
+        app.addProfessional("2", "Mik", "Smith", "Surgery", "2024-05-01 to 2024-05-28");
+        assertEquals(3, app.getProfessionals("Surgery").size());
+    }
+
+    @Test
+    public void testSpecializationChange() throws EmergencyException {
+        app.addProfessional("1", "John", "Doe", "Surgery", "2024-01-01 to 2024-12-31");
+        assertEquals(4, app.getProfessionals("Surgery").size());
+        assertThrows(EmergencyException.class, () -> app.getProfessionals("Cardiology"));
+    }
+
+    @Test
+    public void testShiftIndexOnDuty() {
+        ShiftIndex shifts = new ShiftIndex();
+        for (int i = 0; i < 100; i++)
+            shifts.add(new Professional(String.valueOf(i), "N", "S", "Surgery",
+                        LocalDate.of(2024, 1, 1).plusDays(i) + " to " + LocalDate.of(2024, 1, 1).plusDays(i + 9)));
+        assertEquals(10, shifts.onDuty(LocalDate.of(2024, 2, 1)).size());
+        assertEquals(1, shifts.onDuty(LocalDate.of(2024, 1, 1)).size());
+        assertEquals(6, shifts.covering(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 5)).size());
+        assertTrue(shifts.onDuty(LocalDate.of(2023, 12, 31)).isEmpty());
+    }
+
+    @Test
+    public void testShiftIndexAssignMatchesScan() {
+        ShiftIndex shifts = new ShiftIndex();
+        for (int i = 0; i < 100; i++)
+            shifts.add(new Professional(String.valueOf(i), "N", "S", "Surgery",
+                        LocalDate.of(2024, 1, 1).plusDays(i) + " to " + LocalDate.of(2024, 1, 1).plusDays(i + 9)));
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            LocalDate day = LocalDate.of(2023, 12, 25).plusDays(random.nextInt(120));
+            // the least loaded on duty, then the least ID, whatever the load of those off duty
+            Professional expected = shifts.onDuty(day).stream()
+                        .min(Comparator.comparingInt((Professional p) -> shifts.caseload(p.getId()))
+                                       .thenComparing(Professional::getId))
+                        .orElse(null);
+            Professional assigned = shifts.assign((int) day.toEpochDay());
+            assertEquals(expected == null ? null : expected.getId(), assigned == null ? null : assigned.getId());
+            if (assigned != null && random.nextInt(3) == 0)
+                shifts.charge(assigned.getId(), -1);
+            if (n == 1000)
+                shifts.remove("50");
+        }
+    }
+
+    @Test
+    public void testShiftIndexCoveringMatchesScan() {
+        ShiftIndex shifts = new ShiftIndex();
+        List<Professional> all = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            LocalDate from = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(200));
+            Professional p = new Professional(String.valueOf(i), "N", "S", "Surgery", from + " to " + from.plusDays(random.nextInt(60)));
+            shifts.add(p);
+            all.add(p);
+        }
+        for (int n = 0; n < 1000; n++) {
+            LocalDate start = LocalDate.of(2023, 12, 25).plusDays(random.nextInt(280));
+            LocalDate end = start.plusDays(random.nextInt(40) - 5);
+            long first = start.toEpochDay(), last = Math.max(first, end.toEpochDay());
+            List<String> expected = all.stream()
+                        .filter(p -> p.startDay <= first && p.endDay >= last)
+                        .map(Professional::getId).sorted().toList();
+            assertEquals(expected, shifts.covering(start, end).stream().map(Professional::getId).sorted().toList());
+        }
+    }
+
+    @Test
+    public void testGetProfessionalsInService() throws EmergencyException {
+        assertEquals(List.of("3"), app.getProfessionalsInService("Surgery", "2024-05-15 to 2024-06-15"));
+        assertEquals(List.of("3", "4"), app.getProfessionalsInService("Surgery", "2024-06-10 to 2024-06-20"));
+    }
+
+    @Test
+    public void testAssignUsesDateOfAdmission() throws EmergencyException {
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-07-01");
+        assertEquals("4", app.assignPatientToProfessional("A", "Surgery"));
+        app.addPatient("B", "Bob", "Builder", "1990-01-01", "Checkup", "2024-08-01");
+        assertThrows(EmergencyException.class, () -> app.assignPatientToProfessional("B", "Surgery"));
+    }
+
+    @Test
+    public void testGetPatientBySurname() throws EmergencyException {
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("B", "Bob", "wonderland", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("C", "Carl", "Wonder", "1990-01-01", "Checkup", "2024-07-01");
+        assertEquals(1, app.getPatient("Wonderland").size());
+        assertEquals("B", app.getPatient("B").get(0).getFiscalCode());
+        assertEquals(3, app.getPatientsBySurnamePrefix("WONDER").size());
+        assertEquals(2, app.getPatientsBySurnamePrefix("wonderl").size());
+        assertTrue(app.getPatientsBySurnamePrefix("x").isEmpty());
+    }
+
+    @Test
+    public void testAddPatientKeepsExisting() {
+        Patient first = app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-07-01");
+        assertSame(first, app.addPatient("A", "Other", "Name", "1991-01-01", "Checkup", "2024-07-02"));
+    }
+
+    @Test
+    public void testPatientsByDate() {
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("B", "Bob", "Brown", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("C", "Anna", "Brown", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("D", "Dan", "Abbot", "1990-01-01", "Checkup", "2024-07-05");
+        app.addPatient("E", "Eve", "Abbot", "1990-01-01", "Checkup", "2024-07-09");
+        assertEquals(List.of("C", "B", "A"), app.getPatientsByDate("2024-07-01"));
+        assertEquals(3, app.getNumberOfPatientsByDate("2024-07-01"));
+        assertEquals(List.of("C", "B", "A", "D"), app.getPatientsByDateRange("2024-07-01", "2024-07-07"));
+        assertEquals(2, app.getNumberOfPatientsByDateRange("2024-07-02", "2024-07-09"));
+        assertEquals(0, app.getNumberOfPatientsByDate("2024-07-02"));
+    }
+
+    @Test
+    public void testDischargedBySpecialization() throws EmergencyException {
+        app.addDepartment("Full", 0);
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("B", "Bob", "Builder", "1990-01-01", "Checkup", "2024-07-01");
+        app.addPatient("C", "Carl", "Wonder", "1990-01-01", "Checkup", "2024-07-01");
+        app.assignPatientToProfessional("A", "Surgery");
+        app.assignPatientToProfessional("B", "Cardiology");
+        app.dischargeOrHospitalize("A", "Full");
+        app.dischargeOrHospitalize("B", "Full");
+        app.dischargeOrHospitalize("C", "Full");
+        assertEquals(1, app.getNumberOfPatientsAssignedToProfessionalDischarged("Surgery"));
+        // assignment after the discharge still counts, under the new specialization
+        app.assignPatientToProfessional("B", "Surgery");
+        assertEquals(Map.of("Surgery", 2, "Cardiology", 0), app.getNumberOfPatientsAssignedToProfessionalDischarged());
+    }
+
+    @Test
+    public void testLeastLoadedDispatch() throws EmergencyException {
+        app.addDepartment("Full", 0);
+        for (String code : List.of("A", "B", "C", "D"))
+            app.addPatient(code, "Name", "Surname", "1990-01-01", "Checkup", "2024-06-15");
+        // 3 and 4 are on duty on June 15th
+        assertEquals("3", app.assignPatientToProfessional("A", "Surgery"));
+        assertEquals("4", app.assignPatientToProfessional("B", "Surgery"));
+        assertEquals("3", app.assignPatientToProfessional("C", "Surgery"));
+        assertEquals(2, app.getCaseload("3"));
+        app.dischargeOrHospitalize("A", "Full");
+        app.dischargeOrHospitalize("C", "Full");
+        assertEquals(0, app.getCaseload("3"));
+        assertEquals("3", app.assignPatientToProfessional("D", "Surgery"));
+        // a reassigned patient does not count against its current professional
+        assertEquals("3", app.assignPatientToProfessional("D", "Surgery"));
+        assertEquals(1, app.getCaseload("3"));
+        assertEquals(1, app.getCaseload("4"));
+    }
+
+    @Test
+    public void testCompactRecords() throws EmergencyException {
+        Professional p = app.getProfessionalById("2");
+        assertEquals("2024-05-01 to 2024-05-28", p.getPeriod());
+        assertEquals("24/7", p.getWorkingHours());
+        assertEquals(LocalDate.of(2024, 5, 28), p.getEnd());
+        assertEquals("08:00-20:00", new Professional("5", "Al", "Neri", "Surgery", "2024-01-01 to 2024-01-02", "08:00-20:00").getWorkingHours());
+
+        Patient a = app.addPatient("A", new String("Ann"), "Rossi", "1980-02-29", new String("Chest pain"), "2024-06-10");
+        Patient b = app.addPatient("B", new String("Ann"), "Bianchi", "1975-05-05", new String("Chest pain"), "2024-06-11");
+        assertEquals("1980-02-29", a.getDateOfBirth());
+        assertEquals("2024-06-10", a.getDateTimeAccepted());
+        assertEquals(LocalDate.of(2024, 6, 10), a.getDateAccepted());
+        assertSame(a.getName(), b.getName());
+        // free text is not shared, and neither are the names of another emergency room
+        assertNotSame(a.getReason(), b.getReason());
+        assertNotSame(a.getName(), new EmergencyApp().addPatient("A", new String("Ann"), "Rossi", "1980-02-29", "Fever", "2024-06-10").getName());
+    }
+
+    private void assertCounts(int... expected) {
+        assertEquals(expected[0], app.countPatients(null, null, null, null, null));
+        assertEquals(expected[1], app.countPatients(PatientStatus.ADMITTED, "2024-06-10", "2024-06-10", null, null));
+        assertEquals(expected[2], app.countPatients(null, null, null, "Surgery", null));
+        assertEquals(expected[3], app.countPatients(PatientStatus.HOSPITALIZED, null, null, "Cardiology", "Ward"));
+        assertEquals(expected[4], app.countPatients(PatientStatus.DISCHARGED, "2024-06-01", "2024-06-30", null, null));
+        assertEquals(0, app.countPatients(null, null, null, "Dermatology", null));
+    }
+
+    @Test
+    public void testCountPatients() throws EmergencyException {
+        app.addDepartment("Ward", 1);
+        app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10");
+        app.addPatient("B", "Bob", "Bianchi", "1975-05-05", "Fracture", "2024-06-10");
+        app.addPatient("C", "Carl", "Verdi", "1990-02-02", "Fracture", "2024-06-11");
+        app.assignPatientToProfessional("A", "Cardiology");
+        app.assignPatientToProfessional("C", "Surgery");
+        app.dischargeOrHospitalize("A", "Ward");
+        assertCounts(3, 1, 1, 1, 0);
+
+        app.enableColumnarStore();
+        assertCounts(3, 1, 1, 1, 0);
+        app.dischargeOrHospitalize("C", "Ward"); // full: discharged
+        app.addPatient("D", "Dan", "Neri", "1970-04-04", "Cough", "2024-06-10");
+        app.assignPatientToProfessional("D", "Surgery");
+        assertCounts(4, 2, 2, 1, 1);
+    }
+
+    @Test
+    public void testColumnsGrowByChunks() {
+        app.enableColumnarStore();
+        List<Patient> batch = new ArrayList<>();
+        for (int i = 0; i < PatientColumns.CHUNK_ROWS + 10; i++)
+            batch.add(new Patient("P" + i, "Name", "Surname", "1970-01-01", "Checkup", i % 2 == 0 ? "2024-06-10" : "2024-06-11"));
+        app.addPatients(batch);
+        assertEquals(batch.size(), app.countPatients(null, null, null, null, null));
+        assertEquals(batch.size() / 2, app.countPatients(PatientStatus.ADMITTED, "2024-06-11", null, null, null));
+    }
+
+    @Test
+    public void testColumnsCodeManyValues() {
+        PatientColumns columns = new PatientColumns();
+        int row = columns.add(new Patient("A", "Name", "Surname", "1970-01-01", "Checkup", "2024-06-10"));
+        long day = LocalDate.of(2024, 6, 10).toEpochDay();
+        for (int i = 0; i <= Short.MAX_VALUE; i++)
+            columns.set(row, PatientStatus.HOSPITALIZED, "S" + i, "D" + i);
+        assertEquals(1, columns.count(PatientStatus.HOSPITALIZED, day, day, "S" + Short.MAX_VALUE, "D" + Short.MAX_VALUE));
+        assertEquals(0, columns.count(null, day, day, "S0", null));
+    }
+}
@@ -0,0 +1,111 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.io.StringReader;
+import java.util.*;
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMetrics {
+
+    private EmergencyApp app;
+    private DefaultMetricsRegistry metrics;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        metrics = (DefaultMetricsRegistry) app.getMetricsRegistry();
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long v : new long[] {0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            long lowest = LatencyHistogram.lowest(LatencyHistogram.bucket(v));
+            assertTrue(v + " in bucket from " + lowest, lowest <= v && v - lowest <= v / 16);
+        }
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+            h.record(i * 1000L);
+        assertEquals(1000, h.count());
+        assertEquals(500_000, h.percentile(0.5), 500_000 / 16);
+        assertEquals(990_000, h.percentile(0.99), 990_000 / 16);
+    }
+
+    @Test
+    public void testCountsAndErrors() throws Exception {
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10");
+        app.addPatient("B", "Bob", "Bianchi", "1975-05-05", "Fracture", "2024-06-10", 2);
+        app.assignPatientToProfessional("A", "Cardiology");
+        assertThrows(EmergencyException.class, () -> app.assignPatientToProfessional("A", "Neurology"));
+        assertThrows(EmergencyException.class, () -> app.assignPatientToProfessional("Z", "Cardiology"));
+        assertThrows(EmergencyException.class, () -> app.getProfessionalById("9"));
+        assertThrows(IllegalArgumentException.class, () -> app.addPatient("C", "C", "C", "1980-01-01", "R", "2024-06-10", 9));
+        assertEquals("B", app.assignNextPatient("Cardiology"));
+        app.readFromFileDepartments(new StringReader("name,max\nCardiology,3\n"));
+        assertEquals(2, app.getCaseload("1"));
+        app.enableColumnarStore();
+
+        assertEquals(1, metrics.getCount(Operation.ADD_PROFESSIONAL));
+        assertEquals(3, metrics.getCount(Operation.ADD_PATIENT));
+        // the assignment inside assignNextPatient is not counted twice
+        assertEquals(3, metrics.getCount(Operation.ASSIGN_PATIENT_TO_PROFESSIONAL));
+        assertEquals(1, metrics.getCount(Operation.ASSIGN_NEXT_PATIENT));
+        assertEquals(1, metrics.getCount(Operation.READ_DEPARTMENTS));
+        // the lookup inside getCaseload is not counted as a call of its own
+        assertEquals(1, metrics.getCount(Operation.GET_CASELOAD));
+        assertEquals(1, metrics.getCount(Operation.GET_PROFESSIONAL_BY_ID));
+        assertEquals(1, metrics.getCount(Operation.ENABLE_COLUMNAR_STORE));
+        assertEquals(Map.of("No professionals found with given specialization!", 1L,
+                            "No patient found with given fiscal code!", 1L),
+                     metrics.getErrors(Operation.ASSIGN_PATIENT_TO_PROFESSIONAL));
+        assertEquals(Map.of("IllegalArgumentException", 1L), metrics.getErrors(Operation.ADD_PATIENT));
+        assertEquals(2, metrics.getStats(Operation.ASSIGN_PATIENT_TO_PROFESSIONAL).getErrors());
+        assertTrue(metrics.getPercentile(Operation.ADD_PATIENT, 0.5) > 0);
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(Operation.ADD_PATIENT));
+        assertTrue(metrics.getOperations().isEmpty());
+    }
+
+    @Test
+    public void testPluggableRegistry() {
+        List<Operation> seen = new ArrayList<>();
+        app.setMetricsRegistry(new MetricsRegistry() {
+            @Override
+            public void record(Operation operation, long nanos) {
+                seen.add(operation);
+            }
+
+            @Override
+            public void recordError(Operation operation, String cause) {
+            }
+        });
+        app.getNumberOfPatients();
+        app.addDepartment("Cardiology", 2);
+        assertEquals(List.of(Operation.GET_NUMBER_OF_PATIENTS, Operation.ADD_DEPARTMENT), seen);
+        assertEquals(0, metrics.getCount(Operation.ADD_DEPARTMENT));
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        app.getNumberOfPatients();
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+            assertEquals(1, operations.length);
+            assertEquals("GET_NUMBER_OF_PATIENTS", operations[0].get("operation"));
+            assertEquals(1L, operations[0].get("count"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, ((CompositeData[]) server.getAttribute(name, "Operations")).length);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
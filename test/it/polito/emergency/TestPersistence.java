@@ -0,0 +1,379 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPersistence {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("emergency");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    private static EmergencyApp withStaff(EmergencyApp app) {
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        return app;
+    }
+
+    @Test
+    public void testReportsSurviveRestart() throws Exception {
+        Path log = dir.resolve("reports.log");
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            assertEquals("1", app.saveReport("1", "A", "2024-06-01", "Fracture of the left arm").getId());
+            assertEquals("2", app.saveReport("1", "B", "2024-06-02", "Allergy: pollen, dust (è grave)").getId());
+        }
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            Report r = app.getReport(2);
+            assertEquals("B", r.getFiscalCode());
+            assertEquals("Allergy: pollen, dust (è grave)", r.getDescription());
+            assertEquals("3", app.saveReport("1", "C", "2024-06-03", "Checkup").getId());
+            assertThrows(EmergencyException.class, () -> app.getReport(4));
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws Exception {
+        Path log = dir.resolve("reports.log");
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            app.saveReport("1", "A", "2024-06-01", "First");
+            app.saveReport("1", "B", "2024-06-02", "Second");
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            assertEquals("First", app.getReport(1).getDescription());
+            assertThrows(EmergencyException.class, () -> app.getReport(2));
+            assertEquals("2", app.saveReport("1", "C", "2024-06-03", "Third").getId());
+            assertEquals("Third", app.getReport(2).getDescription());
+        }
+    }
+
+    @Test
+    public void testCorruptedRecordCutsTheLog() throws Exception {
+        Path log = dir.resolve("reports.log");
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            app.saveReport("1", "A", "2024-06-01", "First");
+            app.saveReport("1", "B", "2024-06-02", "Second");
+            app.saveReport("1", "C", "2024-06-03", "Third");
+        }
+        // a complete second record whose content did not reach the disk intact
+        byte[] bytes = Files.readAllBytes(log);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        bytes[text.indexOf("Second")] = 'X';
+        Files.write(log, bytes);
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            assertEquals("First", app.getReport(1).getDescription());
+            assertThrows(EmergencyException.class, () -> app.getReport(2));
+            assertEquals("2", app.saveReport("1", "D", "2024-06-04", "Fourth").getId());
+        }
+    }
+
+    @Test
+    public void testConcurrentSaves() throws Exception {
+        Path log = dir.resolve("reports.log");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            List<Future<Report>> saved = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String code = "P" + i;
+                saved.add(pool.submit(() -> app.saveReport("1", code, "2024-06-01", "Visit of " + code)));
+            }
+            for (Future<Report> f : saved) {
+                Report r = f.get();
+                assertEquals("Visit of " + r.getFiscalCode(), app.getReport(Integer.parseInt(r.getId())).getDescription());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSnapshotRestore() throws Exception {
+        Path file = dir.resolve("state.snap");
+        try (EmergencyApp app = withStaff(new EmergencyApp())) {
+            app.addProfessional("2", "Mik", "Smith", "Cardiology", "2024-06-01 to 2024-06-30");
+            app.addDepartment("Cardiology", 1);
+            app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10", 2);
+            app.addPatient("B", "Bob", "Bianchi", "1975-05-05", "Fracture", "2024-06-10");
+            app.addPatient("C", "Carl", "Rossi", "1990-09-09", "Fever", "2024-06-11", 4);
+            app.addPatient("D", "Dan", "Verdi", "1960-02-02", "Cough", "2024-06-12");
+            assertEquals("1", app.assignPatientToProfessional("A", "Cardiology"));
+            assertEquals("2", app.assignPatientToProfessional("B", "Cardiology"));
+            app.dischargeOrHospitalize("A", "Cardiology");
+            app.dischargeOrHospitalize("B", "Cardiology");
+            app.saveReport("1", "A", "2024-06-10", "Suspected angina");
+            app.snapshot(file);
+        }
+        try (EmergencyApp app = new EmergencyApp()) {
+            app.restore(file);
+            assertEquals(List.of("1", "2"), app.getProfessionals("Cardiology"));
+            assertEquals(List.of("Cardiology"), app.getDepartments());
+            assertEquals(List.of("A"), app.getHospitalizedPatients("Cardiology"));
+            assertEquals(0, app.verifyPatient("A"));
+            assertEquals(EmergencyApp.PatientStatus.DISCHARGED, app.getPatient("B").get(0).getStatus());
+            assertEquals(2, app.getNumberOfPatients());
+            assertEquals(1, app.getNumberOfPatientsDischarged());
+            assertEquals(1, app.getNumberOfPatientsAssignedToProfessionalDischarged("Cardiology"));
+            assertEquals(1, app.getCaseload("1"));
+            assertEquals(0, app.getCaseload("2"));
+            assertEquals(List.of("D", "C"), app.getTriageQueue());
+            assertEquals(List.of("B", "A"), app.getPatientsByDate("2024-06-10"));
+            assertEquals(2, app.getPatient("Rossi").size());
+            assertEquals("Suspected angina", app.getReport(1).getDescription());
+            assertEquals(1, app.searchReports("angina", true, "1", null, null, 10).size());
+            // the queue goes on in order of arrival after the restored patients
+            app.addPatient("E", "Eve", "Neri", "2000-03-03", "Cough", "2024-06-12");
+            assertEquals(List.of("D", "E", "C"), app.getTriageQueue());
+            assertThrows(IllegalStateException.class, () -> app.restore(file));
+        }
+    }
+
+    @Test
+    public void testOlderSnapshotVersionRefused() throws Exception {
+        Path file = dir.resolve("state.snap");
+        try (EmergencyApp app = withStaff(new EmergencyApp())) {
+            app.snapshot(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 2), Integer.BYTES);
+        }
+        try (EmergencyApp app = new EmergencyApp()) {
+            assertThrows(IOException.class, () -> app.restore(file));
+        }
+    }
+
+    @Test
+    public void testSnapshotKeepsLoggedReports() throws Exception {
+        Path file = dir.resolve("state.snap");
+        Path log = dir.resolve("reports.log");
+        try (EmergencyApp app = withStaff(new EmergencyApp(log))) {
+            app.saveReport("1", "A", "2024-06-01", "First");
+            app.saveReport("1", "B", "2024-06-02", "Second");
+            app.snapshot(file);
+        }
+        try (EmergencyApp app = new EmergencyApp(log)) {
+            app.restore(file);
+            assertEquals("Second", app.getReport(2).getDescription());
+            assertThrows(EmergencyException.class, () -> app.getReport(3));
+        }
+        try (EmergencyApp app = new EmergencyApp(dir.resolve("other.log"))) {
+            app.restore(file);
+            assertEquals("Second", app.getReport(2).getDescription());
+            assertEquals(List.of("1"), app.getProfessionals("Cardiology"));
+        }
+    }
+
+    @Test
+    public void testSnapshotDuringIntake() throws Exception {
+        Path file = dir.resolve("state.snap");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (EmergencyApp app = withStaff(new EmergencyApp())) {
+            List<Future<?>> intake = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                intake.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++)
+                        app.addPatient("P" + thread + "-" + i, "N", "S" + i, "1980-01-01", "R", "2024-06-01");
+                }));
+            }
+            app.snapshot(file);
+            for (Future<?> f : intake)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+        try (EmergencyApp app = new EmergencyApp()) {
+            app.restore(file);
+            // whatever the point in time, the restored counters agree with the restored patients
+            assertEquals(app.getNumberOfPatientsByDate("2024-06-01"), app.getNumberOfPatients());
+            assertEquals(app.getNumberOfPatients(), app.getTriageQueue().size());
+        }
+    }
+
+    private static void shift(EmergencyApp app) throws EmergencyException {
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addProfessional("2", "Mik", "Smith", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addDepartment("Cardiology", 1);
+        app.addPatient("A", "Ann", "Rossi", "1980-01-01", "Chest pain", "2024-06-10");
+        app.addPatient("B", "Bob", "Bianchi", "1975-05-05", "Fracture", "2024-06-10", 1);
+        app.addPatient("C", "Carl", "Verdi", "1990-09-09", "Fever", "2024-06-11");
+        app.setPatientSeverity("C", 2);
+        assertEquals("B", app.assignNextPatient("Cardiology"));
+        assertEquals("2", app.assignPatientToProfessional("A", "Cardiology"));
+        app.dischargeOrHospitalize("A", "Cardiology");
+        app.dischargeOrHospitalize("B", "Cardiology");
+        app.saveReport("1", "B", "2024-06-10", "Fracture of the left wrist");
+    }
+
+    private static void assertShift(EmergencyApp app) throws EmergencyException {
+        assertEquals(List.of("1", "2"), app.getProfessionals("Cardiology"));
+        assertEquals(List.of("A"), app.getHospitalizedPatients("Cardiology"));
+        assertEquals(EmergencyApp.PatientStatus.DISCHARGED, app.getPatient("B").get(0).getStatus());
+        assertEquals(List.of("C"), app.getTriageQueue());
+        assertEquals(2, app.getNextPatient().getSeverity());
+        assertEquals(0, app.getCaseload("1"));
+        assertEquals(1, app.getCaseload("2"));
+        assertEquals(1, app.getNumberOfPatientsAssignedToProfessionalDischarged("Cardiology"));
+        assertEquals(1, app.getReportsByPatient("B", 0, 10).size());
+    }
+
+    @Test
+    public void testEventLogReplay() throws Exception {
+        for (EmergencyApp.Durability durability : EmergencyApp.Durability.values()) {
+            Path data = dir.resolve(durability.name());
+            try (EmergencyApp app = new EmergencyApp(data, durability)) {
+                shift(app);
+            }
+            try (EmergencyApp app = new EmergencyApp(data, durability)) {
+                assertShift(app);
+                // the order of arrival goes on after the replayed patients
+                app.addPatient("D", "Dan", "Neri", "1960-02-02", "Cough", "2024-06-11", 2);
+                assertEquals(List.of("C", "D"), app.getTriageQueue());
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        Path data = dir.resolve("data");
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.GROUP_COMMIT)) {
+            shift(app);
+            app.checkpoint();
+            app.addPatient("D", "Dan", "Neri", "1960-02-02", "Cough", "2024-06-11", 2);
+            app.checkpoint();
+            app.dischargeOrHospitalize("D", "Cardiology");
+        }
+        try (var files = Files.list(data)) {
+            assertEquals(1, files.filter(f -> f.getFileName().toString().startsWith("events-")).count());
+        }
+        // the reports stay in their log, the checkpoint only counts them
+        assertFalse(new String(Files.readAllBytes(data.resolve("state.snap")), StandardCharsets.UTF_8)
+                        .contains("Fracture of the left wrist"));
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.GROUP_COMMIT)) {
+            assertEquals(List.of("C"), app.getTriageQueue());
+            assertEquals(2, app.getNumberOfPatientsDischarged());
+            assertEquals(1, app.getReportsByPatient("B", 0, 10).size());
+        }
+    }
+
+    @Test
+    public void testTornEventIsDropped() throws Exception {
+        Path data = dir.resolve("data");
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.PER_EVENT)) {
+            shift(app);
+            app.addPatient("D", "Dan", "Neri", "1960-02-02", "Cough", "2024-06-11");
+        }
+        Path segment;
+        try (var files = Files.list(data)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("events-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.PER_EVENT)) {
+            assertShift(app);
+            assertTrue(app.getPatient("D").isEmpty());
+        }
+    }
+
+    @Test
+    public void testConcurrentLoggedIntake() throws Exception {
+        Path data = dir.resolve("data");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.GROUP_COMMIT)) {
+            app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+            app.addDepartment("Cardiology", 50);
+            List<Future<?>> intake = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                intake.add(pool.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        String code = "P" + thread + "-" + i;
+                        app.addPatient(code, "N", "S", "1980-01-01", "R", "2024-06-01");
+                        app.assignPatientToProfessional(code, "Cardiology");
+                        app.dischargeOrHospitalize(code, "Cardiology");
+                        if (i == 25 && thread == 0)
+                            app.checkpoint();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : intake)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.GROUP_COMMIT)) {
+            assertEquals(50, app.getNumberOfPatientsHospitalizedByDepartment("Cardiology"));
+            assertEquals(350, app.getNumberOfPatientsDischarged());
+            assertEquals(50, app.getCaseload("1"));
+        }
+    }
+
+    @Test
+    public void testConcurrentCheckpoints() throws Exception {
+        Path data = dir.resolve("data");
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.GROUP_COMMIT)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++)
+                    app.addPatient("P" + i, "N", "S", "1980-01-01", "R", "2024-06-01");
+                return null;
+            }));
+            for (int t = 0; t < 2; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 20; i++)
+                        app.checkpoint();
+                    return null;
+                }));
+            }
+            for (Future<?> f : tasks)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+        try (var files = Files.list(data)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().endsWith(".tmp")));
+        }
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.GROUP_COMMIT)) {
+            assertEquals(500, app.getNumberOfPatients());
+        }
+    }
+
+    @Test
+    public void testAsyncCloseForcesLastEvents() throws Exception {
+        Path data = dir.resolve("data");
+        for (int i = 0; i < 100; i++) {
+            try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.ASYNC)) {
+                app.addPatient("P" + i, "N", "S", "1980-01-01", "R", "2024-06-01");
+                // lets the flusher start a round, which close must not interrupt
+                Thread.sleep(i % 3 == 0 ? EventLog.FLUSH_INTERVAL_MILLIS : 0);
+            }
+        }
+        try (EmergencyApp app = new EmergencyApp(data, EmergencyApp.Durability.ASYNC)) {
+            assertEquals(100, app.getNumberOfPatients());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestReports {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() throws EmergencyException {
+        app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-01-01 to 2024-12-31");
+        app.addProfessional("2", "Mik", "Smith", "Orthopedics", "2024-01-01 to 2024-12-31");
+        app.saveReport("1", "A", "2024-06-03", "Chest pain, suspected angina");
+        app.saveReport("2", "B", "2024-06-01", "Fracture of the left wrist");
+        app.saveReport("1", "A", "2024-06-01", "Allergy to penicillin");
+        app.saveReport("2", "A", "2024-06-02", "Wrist fracture follow-up, no allergy reaction");
+        app.saveReport("1", "C", "2024-06-05", "Routine checkup");
+    }
+
+    private static List<String> ids(List<Report> reports) {
+        return reports.stream().map(Report::getId).toList();
+    }
+
+    @Test
+    public void testByPatient() {
+        assertEquals(List.of("3", "4", "1"), ids(app.getReportsByPatient("A", 0, 10)));
+        assertEquals(List.of("4"), ids(app.getReportsByPatient("A", 1, 1)));
+        assertTrue(app.getReportsByPatient("A", 3, 10).isEmpty());
+        assertTrue(app.getReportsByPatient("Z", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testByProfessional() {
+        assertEquals(List.of("3", "1", "5"), ids(app.getReportsByProfessional("1", 0, 10)));
+        assertEquals(List.of("2", "4"), ids(app.getReportsByProfessional("2", 0, 10)));
+    }
+
+    @Test
+    public void testByDate() {
+        assertEquals(List.of("2", "3", "4"), ids(app.getReportsByDate("2024-06-01", "2024-06-02", 0, 10)));
+        assertEquals(List.of("4", "1"), ids(app.getReportsByDate("2024-06-01", "2024-06-04", 2, 2)));
+        assertTrue(app.getReportsByDate("2024-07-01", "2024-07-31", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testInvalidDate() throws EmergencyException {
+        // saved as given, without a day to be found by
+        assertEquals("yesterday", app.saveReport("1", "A", "yesterday", "Checkup").getDate());
+        assertEquals(List.of("5", "6"), ids(app.searchReports("checkup", true, null, null, null, 10)));
+        assertEquals(List.of("2", "3", "4", "1", "5"), ids(app.getReportsByDate("2024-06-01", "2024-06-05", 0, 10)));
+        assertTrue(app.getReportsByDate("1970-01-01", "1970-01-01", 0, 10).isEmpty());
+        assertEquals(List.of("5"), ids(app.searchReports("checkup", true, null, null, "2024-12-31", 10)));
+        assertEquals(List.of("6", "3", "4", "1"), ids(app.getReportsByPatient("A", 0, 10)));
+    }
+
+    @Test
+    public void testSearch() {
+        assertEquals(List.of("2", "4"), ids(app.searchReports("Fracture", true, null, null, null, 10)));
+        assertEquals(List.of("4"), ids(app.searchReports("wrist ALLERGY", true, null, null, null, 10)));
+        assertEquals(List.of("2", "3", "4"), ids(app.searchReports("fracture allergy", false, null, null, null, 10)));
+        assertEquals(List.of("3"), ids(app.searchReports("fracture allergy", false, "1", null, null, 10)));
+        assertEquals(List.of("4"), ids(app.searchReports("fracture allergy", false, null, "2024-06-02", null, 10)));
+        assertEquals(List.of("2"), ids(app.searchReports("fracture allergy", false, null, null, "2024-06-01", 1)));
+        assertTrue(app.searchReports("fracture unknown", true, null, null, null, 10).isEmpty());
+        assertTrue(app.searchReports("", false, null, null, null, 10).isEmpty());
+    }
+
+    @Test
+    public void testPostingsRoundTrip() {
+        ReportSearchIndex.Postings postings = new ReportSearchIndex.Postings();
+        int[] expected = {1, 2, 130, 131, 20000, 5000000, Integer.MAX_VALUE};
+        for (int id : expected)
+            postings.add(id);
+        assertArrayEquals(expected, postings.decode());
+    }
+
+    @Test
+    public void testOutOfOrderIndexing() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        index.add(2, "fracture");
+        assertEquals(0, index.search(List.of("fracture"), true).length);
+        index.add(1, "fracture");
+        assertArrayEquals(new int[] {1, 2}, index.search(List.of("fracture"), true));
+    }
+}
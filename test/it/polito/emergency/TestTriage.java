@@ -0,0 +1,76 @@
+package it.polito.emergency;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTriage {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        app.addProfessional("1", "John", "Doe", "Cardiology", "2024-06-01 to 2024-06-30");
+        app.addDepartment("Full", 0);
+        app.addPatient("A", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-06-10", 4);
+        app.addPatient("B", "Bob", "Builder", "1990-01-01", "Chest pain", "2024-06-10", 1);
+        app.addPatient("C", "Carl", "Wonder", "1990-01-01", "Fracture", "2024-06-10");
+        app.addPatient("D", "Dora", "Explorer", "1990-01-01", "Fracture", "2024-06-09");
+    }
+
+    @Test
+    public void testOrder() {
+        assertEquals(List.of("B", "D", "C", "A"), app.getTriageQueue());
+        assertEquals("B", app.getNextPatient().getFiscalCode());
+    }
+
+    @Test
+    public void testReprioritize() throws EmergencyException {
+        app.setPatientSeverity("A", 1);
+        assertEquals(List.of("A", "B", "D", "C"), app.getTriageQueue()); // same severity and day, A arrived first
+        app.setPatientSeverity("B", 5);
+        assertEquals(List.of("A", "D", "C", "B"), app.getTriageQueue());
+        assertThrows(EmergencyException.class, () -> app.setPatientSeverity("A", 0));
+    }
+
+    @Test
+    public void testAssignNext() throws EmergencyException {
+        assertEquals("B", app.assignNextPatient("Cardiology"));
+        app.assignPatientToProfessional("C", "Cardiology");
+        app.dischargeOrHospitalize("D", "Full");
+        assertEquals(List.of("A"), app.getTriageQueue());
+        assertThrows(EmergencyException.class, () -> app.assignNextPatient("Surgery"));
+        assertEquals(List.of("A"), app.getTriageQueue());
+        assertEquals("A", app.assignNextPatient("Cardiology"));
+        assertNull(app.getNextPatient());
+        assertThrows(EmergencyException.class, () -> app.assignNextPatient("Cardiology"));
+    }
+
+    @Test
+    public void testHeapAgainstSort() {
+        TriageQueue queue = new TriageQueue();
+        Random random = new Random(42);
+        List<Patient> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Patient p = new Patient("P" + i, "N", "S", "1990-01-01", "R", "2024-06-" + (10 + random.nextInt(10)), 1 + random.nextInt(5));
+            all.add(p);
+            queue.add(p);
+        }
+        for (int i = 0; i < 500; i++)
+            queue.remove(all.get(random.nextInt(all.size())));
+        Comparator<Patient> order = Comparator.comparingInt(Patient::getSeverity)
+                                              .thenComparing(Patient::getDateAccepted)
+                                              .thenComparingLong(p -> p.arrival);
+        List<Patient> expected = new ArrayList<>(queue.toList());
+        expected.sort(order);
+        List<Patient> polled = new ArrayList<>();
+        for (Patient p; (p = queue.poll()) != null; )
+            polled.add(p);
+        assertEquals(expected, polled);
+        assertEquals(0, queue.size());
+    }
+}